@@ -0,0 +1,90 @@
+package crossword;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Threadsafe limiter on the number of concurrently served connections, which also keeps
+ * admission counters for monitoring.
+ */
+class AdmissionLimiter {
+    // AF(permits, accepted, rejected, active, peak) = a connection limit of permits.availablePermits() + active
+    //                 that has admitted accepted connections, turned away rejected ones, and is currently
+    //                 serving active of them, never more than peak at once
+    // RI: 0 <= active <= peak <= accepted, rejected >= 0
+    // Thread Safety: all fields are threadsafe types, peak is only raised with compare-and-set
+
+    private final int limit;
+    private final Semaphore permits;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong active = new AtomicLong();
+    private final AtomicLong peak = new AtomicLong();
+
+    /**
+     * @param limit maximum number of connections served at once, > 0
+     */
+    public AdmissionLimiter(int limit) {
+        this.limit = limit;
+        this.permits = new Semaphore(limit);
+    }
+
+    /**
+     * Try to admit a new connection without blocking.
+     * @return true if the connection may be served; the caller must then call release() when it ends
+     */
+    public boolean tryAdmit() {
+        if (!permits.tryAcquire()) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        accepted.incrementAndGet();
+        long now = active.incrementAndGet();
+        for (long max = peak.get(); now > max && !peak.compareAndSet(max, now); max = peak.get()) {
+            // retry until peak >= now
+        }
+        return true;
+    }
+
+    /**
+     * Record that an admitted connection has ended.
+     */
+    public void release() {
+        active.decrementAndGet();
+        permits.release();
+    }
+
+    /**
+     * @return number of connections currently being served
+     */
+    public long active() {
+        return active.get();
+    }
+
+    /**
+     * @return number of connections admitted so far
+     */
+    public long accepted() {
+        return accepted.get();
+    }
+
+    /**
+     * @return number of connections turned away so far
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return most connections served at once so far
+     */
+    public long peak() {
+        return peak.get();
+    }
+
+    @Override
+    public String toString() {
+        return "connections limit=" + limit + " active=" + active.get() + " peak=" + peak.get()
+                + " accepted=" + accepted.get() + " rejected=" + rejected.get();
+    }
+}
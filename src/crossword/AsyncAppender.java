@@ -0,0 +1,179 @@
+package crossword;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes log lines to a stream on a background thread. Loggers append lines to a fixed-size
+ * ring buffer without locking or waiting; when the buffer is full the line is dropped and
+ * counted, and the count is reported once the writer catches up. The writer prints whatever
+ * has accumulated as one batch, so a burst of lines costs a single write to the stream.
+ */
+final class AsyncAppender {
+    // AF(out, lines, tail, head) = an appender that has accepted the lines numbered [0, tail) and
+    //                              written the lines [0, head) to out; line n waits in lines[n & mask]
+    // RI: capacity is a power of two, mask = capacity - 1, head <= tail <= head + capacity
+    //     sequences[n & mask] == n + 1 once line n is in the buffer and not yet written,
+    //     and == n + capacity once it has been written
+    // Thread Safety: bounded multi-producer queue: a producer claims line n by moving tail from n to
+    //      n + 1, stores it, then publishes it through the volatile write of sequences[n & mask].
+    //      head, batch and out are confined to the writer thread. written and dropped are threadsafe.
+    //      The writer parks without a timeout once the buffer is empty, after setting the volatile
+    //      idle and checking the buffer once more; a producer reads idle after publishing its line
+    //      and unparks the writer if it is set, so either the writer sees the line or the producer
+    //      sees idle, and no line is left waiting while the writer sleeps.
+
+    private static final long FLUSH_POLL_NANOS = 100_000;
+    private static final int MAX_BATCH_CHARS = 64 * 1024;
+
+    private final PrintStream out;
+    private final int capacity;
+    private final int mask;
+    private final String[] lines;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final StringBuilder batch = new StringBuilder();
+    private final Thread writer;
+    private volatile boolean idle = false;
+    private long head = 0;
+    private long reportedDropped = 0;
+
+    /**
+     * Make an appender and start its writer thread.
+     * @param out stream the lines are written to
+     * @param capacity number of lines buffered before new ones are dropped, a power of two
+     */
+    public AsyncAppender(PrintStream out, int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.out = out;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.lines = new String[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.writer = new Thread(this::writeForever, "crossword-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue a line to be written, without waiting.
+     * @param line the line, without a trailing newline
+     * @return true if the line was queued, false if the buffer was full and it was dropped
+     */
+    public boolean append(String line) {
+        long n = tail.get();
+        while (true) {
+            int slot = (int)(n & mask);
+            long ahead = sequences.get(slot) - n;
+            if (ahead == 0) {
+                if (tail.compareAndSet(n, n + 1)) {
+                    lines[slot] = line;
+                    sequences.set(slot, n + 1);
+                    wakeWriter();
+                    return true;
+                }
+                n = tail.get();
+            } else if (ahead < 0) {
+                dropped.incrementAndGet();
+                wakeWriter();
+                return false;
+            } else {
+                n = tail.get();
+            }
+        }
+    }
+
+    /**
+     * @return number of lines dropped so far because the buffer was full
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Wait until every line queued before this call has been written, or until timeoutMillis
+     * has passed.
+     * @param timeoutMillis longest time to wait
+     * @return true if every such line was written
+     */
+    public boolean flush(long timeoutMillis) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        while (written.get() < target) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(FLUSH_POLL_NANOS);
+        }
+        return true;
+    }
+
+    private void writeForever() {
+        while (true) {
+            for (String line = poll(); line != null; line = poll()) {
+                batch.append(line).append(System.lineSeparator());
+                if (batch.length() >= MAX_BATCH_CHARS) {
+                    break;
+                }
+            }
+            long lost = dropped.get();
+            if (lost != reportedDropped) {
+                batch.append("WARN log: dropped ").append(lost - reportedDropped)
+                     .append(" lines, the log buffer was full").append(System.lineSeparator());
+                reportedDropped = lost;
+            }
+            if (batch.length() == 0) {
+                idle = true;
+                if (!ready() && dropped.get() == reportedDropped) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                continue;
+            }
+            out.print(batch);
+            out.flush();
+            batch.setLength(0);
+            written.set(head);
+        }
+    }
+
+    /**
+     * Unpark the writer if it is waiting for lines; costs a volatile read when it is not.
+     */
+    private void wakeWriter() {
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * @return true if the next line to write is ready
+     */
+    private boolean ready() {
+        return sequences.get((int)(head & mask)) == head + 1;
+    }
+
+    /**
+     * @return the next line to write, or null if none is ready
+     */
+    private String poll() {
+        if (!ready()) {
+            return null;
+        }
+        int slot = (int)(head & mask);
+        String line = lines[slot];
+        lines[slot] = null;
+        sequences.set(slot, head + capacity);
+        head++;
+        return line;
+    }
+}
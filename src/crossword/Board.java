@@ -1,6 +1,8 @@
 package crossword;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -16,111 +18,121 @@ import java.nio.file.Files;
 
 
 /**
- * Threadsafe Mutable class to represent a board on which to play crossword puzzles
+ * Mutable class to represent a board on which to play crossword puzzles
  *     Variant of the Crossword interface used for parsing crossword files.
  *
  */
 public class Board implements Crossword{
 
     /**
-     * AF(answers, board) = the crossword puzzle that has the answers, hints, and numbering as defined by each word in answers
-     *      and the current state as defined by board (the character at board[i][j] is at row i col j on the crossword)
+     * AF(template, grid, owners) = a match on the puzzle described by template (whose answers, hints, numbering and layout
+     *      are shared with every other match on it, see PuzzleTemplate) in the current state defined by grid
+     *      (the character at grid[i*cols + j] is at row i col j on the crossword).
+     *      owners[i*cols + j] has OWNED_ACROSS set if the across word through that cell currently has a guess on the board
+     *      covering it, and OWNED_DOWN set if the down word through it does. correctCells counts the covered cells
+     *      whose grid letter matches solution. confirmedSlots has a bit set for the slot of each word in confirmedWord
+     *      (the confirmed words in order of confirmation). The first dirtyCount
+     *      entries of dirtyCells are the cells (marked in isDirty) that lost an owner or were blanked since the last
+     *      updateBoard, the only cells updateBoard has to revisit. name, description, answers, rows, cols,
+     *      solution, coveredCells, acrossAt, downAt and wordCells are the corresponding parts of template.
+     *      characterString, if not null, is the character layer of the client string for the current grid.
+     *      version counts the moves that changed the board. The first changedCount entries of changedCells are the
+     *      cells whose letter changed during the latest move, changedIn[i] = moves if cell i is one of them.
      * Rep Invariant:
-     *      rows, cols > 0
-     *      answers.size > 0
-     *      hints.size = answers.size
-     *      board.size = rows
-     *      board[i].size = cols for all i < rows
-     *      allCells.size > answers.size
+     *      template's rep invariant
+     *      grid.length = owners.length = rows * cols
+     *      correctCells = #{i | solution[i] != EMPTY and grid[i] == solution[i]} <= coveredCells
+     *      confirmedSlots.get(i) iff confirmedWord contains the word with slot i
+     *      isDirty[i] iff i in dirtyCells[0..dirtyCount)
+     *      changedIn[i] = moves iff i in changedCells[0..changedCount)
      *      players <= 2
-     *      posToWordDown.keys().equals(posToWordDown.keys())
-     *      posToWordDown.values() consists of distinct elements
-     *      posToWordAcross.values().equals(posToWordAcross.values())
-     *      posToWordAcross.values() consists of distinct elements
-     *      userGuess.keys().equals(answers.keys())
-     *      userGuess.values().equals(playerScores.keys())
-     *      blockOwn.keys().equals(new HashSet(allCells))
-     *      All sets in blockOwn.values() have length < 3
+     *      userGuess.keys() is a subset of answers.keys()
+     *      userGuess.values() is a subset of playerScores.keys()
+     *      owners[i] only has OWNED_ACROSS (OWNED_DOWN) set if an across (down) word covers cell i
      * Thread Safety Argument:
-     *      The only functions permitted to modify the board are synchronized on the board or are only called within a different synchronized function
-     *              and thus the board can only be modified by one thread at a time.
+     *      Board is not threadsafe by itself. A board in play is confined to the MatchMailbox of its match,
+     *              which runs every operation on it one at a time, so no locking is needed here.
+     *              addPlayerID is the exception: it is synchronized because it waits on the board.
      * Rep Exposure:
      *      All data taken in is immutable except for in the constructor, 
      *              but the mutable list is not saved and rather we extract the immutable data inside.
+     *      The arrays shared with template are only ever read.
      *
      **/
     public enum Direction {ACROSS, DOWN, UNASSIGNED}
     public enum State {CONFIRMED, CORRECT, INCORRECT, UNASSIGNED}
+    private final PuzzleTemplate template;
     private final String name;
     private final String description;
-    private final Map<Position, Word> posToWordAcross;
-    private final Map<Position,Word> posToWordDown;
-    private Map<Integer, Word> answers;
-    private Map<Integer, String> hints;
+    private final Word[] acrossAt;
+    private final Word[] downAt;
+    private final Map<Integer, Word> answers;
     private Map<Integer, String> userGuess;
     private List<Word> confirmedWord;
-    private List<List<Character>> board = new ArrayList<>();
-    private List<Position> allCells = new ArrayList<>();
+    private final BitSet confirmedSlots = new BitSet();
+    private static final char EMPTY = PuzzleTemplate.EMPTY;
+    private static final byte OWNED_ACROSS = 1;
+    private static final byte OWNED_DOWN = 2;
+    private final char[] grid;
+    private final byte[] owners;
+    private final char[] solution;
+    private final int coveredCells;
+    private int correctCells = 0;
+    private final int[][] wordCells;
+    private final int[] dirtyCells;
+    private final boolean[] isDirty;
+    private int dirtyCount = 0;
+    private final int[] allCellIndex;
+    private final String[] cellLabels;
+    private String characterString = null;
+    private int version = 0;
+    private int moves = 0;
+    private final int[] changedCells;
+    private final int[] changedIn;
+    private int changedCount = 0;
     private  Map<String, Integer> playerScores = new HashMap<>();
     private Set<String> players = new HashSet<>();
-    private Map<Position, Set<Word>> blockOwn = new HashMap<Position, Set<Word>>();
-    private int rows, cols;
+    private final int rows, cols;
 
     /**
      * Constructor for the board class
      * @param name the name of the game
      * @param description the description of the theme
      * @param allWords the list of words to be placed on the board
-     * @throws Exception if the board is inconsistent
+     * @throws IllegalArgumentException if the puzzle is inconsistent or its grid is too large
      */
-    public Board(String name, String description, List<Word> allWords) throws Exception {
-        this.name = name;
-        this.description = description;
-        this.answers = new HashMap<>();
-        this.hints = new HashMap<>();
+    public Board(String name, String description, List<Word> allWords) {
+        this(new PuzzleTemplate(name, description, allWords));
+    }
+
+    /**
+     * Makes an empty board for a parsed puzzle. Only the state that changes during a match is
+     * allocated; the layout and indices are shared with template.
+     * @param template the puzzle to be played on the board
+     */
+    Board(PuzzleTemplate template) {
+        this.template = template;
+        this.name = template.getName();
+        this.description = template.getDescription();
+        this.answers = template.answers();
+        this.rows = template.rows();
+        this.cols = template.cols();
+        this.solution = template.solution();
+        this.coveredCells = template.coveredCells();
+        this.acrossAt = template.acrossAt();
+        this.downAt = template.downAt();
+        this.wordCells = template.wordCells();
+        this.allCellIndex = template.allCellIndex();
+        this.cellLabels = template.cellLabels();
         this.userGuess= new HashMap<Integer,String>();
         this.confirmedWord= new ArrayList<Word>();
-        int rowMax = 0, colMax = 0;
- 
-        for (Word elt : allWords) {
-            this.answers.put(elt.getNum(), elt);
-            this.hints.put(elt.getNum(), elt.getHint());
-
-            for (int i = 0; i < elt.size(); i++) {
-                if (elt.getDir() == Direction.DOWN) {
-                    Position newPos = new Position(elt.getRow() + i,elt.getCol());
-                    allCells.add(newPos);
-                    blockOwn.put(newPos, new HashSet<Word>());
-                } else if (elt.getDir() == Direction.ACROSS) {
-                    Position newPos = new Position(elt.getRow(),elt.getCol() + i);
-                    allCells.add(newPos);
-                    blockOwn.put(newPos, new HashSet<Word>());
-                }
-            }
-
-            if (elt.getEnd().getRow() > rowMax) {
-                rowMax = elt.getEnd().getRow();
-            }
-            if (elt.getEnd().getCol() > colMax) {
-                colMax = elt.getEnd().getCol();
-            }
-
-        }
-
-        this.rows = rowMax + 1;
-        this.cols = colMax + 1;
-
-        for (int i = 0; i < rows; i++) {
-            List<Character> newRow = new ArrayList<>();
-            for (int j = 0; j < cols; j++) {
-                newRow.add('#');
-            }
-            this.board.add(newRow);
-        }
-        List<Map<Position, Word>> dictList= returnPosWordDict();
-        this.posToWordAcross= dictList.get(0);
-        this.posToWordDown=dictList.get(1);
-        if (!this.isConsistent()) throw new Exception("Inconsistent Puzzle");
+        this.grid = new char[rows * cols];
+        Arrays.fill(this.grid, EMPTY);
+        this.owners = new byte[rows * cols];
+        this.dirtyCells = new int[rows * cols];
+        this.isDirty = new boolean[rows * cols];
+        this.changedCells = new int[rows * cols];
+        this.changedIn = new int[rows * cols];
         assert(this.checkRep());
     }
 
@@ -129,143 +141,126 @@ public class Board implements Crossword{
      */
     private boolean checkRep() {
         /*
-         *      rows, cols > 0
-         *      answers.size > 0
-         *      hints.size = answers.size
-         *      board.size = rows
-         *      board[i].size = cols for all i < rows
-         *      allcells > answers.size
+         *      grid.length = owners.length = rows * cols
+         *      correctCells <= coveredCells
          *      players <= 2
          */
 
-        boolean rowSize = true;
-        for (List<Character> list : this.board) {
-            if (list.size() != this.cols) rowSize = false;
-        }
-        boolean boardSize = this.rows > 0 && this.cols > 0 && this.board.size() == this.rows && rowSize;
-        boolean wordsSize = this.hints.size() > 0 && this.hints.size() == this.answers.size() && this.allCells.size() > this.answers.size();
-        return boardSize && wordsSize && this.playerScores.keySet().size() <= 2;
+        boolean boardSize = this.grid.length == this.rows * this.cols
+                && this.owners.length == this.grid.length && this.solution.length == this.grid.length;
+        boolean progress = 0 <= this.correctCells && this.correctCells <= this.coveredCells;
+        return boardSize && progress && this.playerScores.keySet().size() <= 2;
     }
 
     /**
-     * @return true if this instance of crossword is consistent by the definition in the handout.
-     *        (if words overlap perpendicularly the location that they overlap must share the same letter in each word,
-     *         words should not overlap in the same direction)
+     * @return the puzzle this board is a match on
      */
-    private boolean isConsistent() {
-        List<List<Character>> testBoard = new ArrayList<>();
-        for (int i = 0; i < this.rows; i++) {
-            List<Character> newRow = new ArrayList<>();
-            for (int j = 0; j < this.cols; j++) {
-                newRow.add('#');
-            }
-            testBoard.add(newRow);
-        }
+    PuzzleTemplate getTemplate() {
+        return this.template;
+    }
 
-        List<Word> acrossWords = new ArrayList<>();
-        List<Word> downWords = new ArrayList<>();
-        for (Word elt: this.answers.values()) {
-            String word = elt.getWord();
-            Direction dir = elt.getDir();
-            
-            if (dir == Direction.ACROSS) {
-                if (sameDirOverlap(elt, acrossWords)){
-                    return false;
-                } else {
-                    acrossWords.add(elt);
-                }
-            }
-            else if (dir == Direction.DOWN) {
-                if (sameDirOverlap(elt, downWords)){
-                    return false;
-                } else {
-                    downWords.add(elt);
-                }
+    /**
+     * Writes a letter into a cell covered by a word, keeping correctCells up to date
+     * @param index index of the cell in grid
+     * @param letter the new letter, or EMPTY
+     */
+    private void setCell(int index, char letter) {
+        boolean wasCorrect = this.grid[index] == this.solution[index];
+        boolean nowCorrect = letter == this.solution[index];
+        if (this.grid[index] != letter) {
+            this.characterString = null;
+            if (this.changedIn[index] != this.moves) {
+                this.changedIn[index] = this.moves;
+                this.changedCells[this.changedCount++] = index;
             }
-            
-            for (int i = 0; i<elt.size(); i++) {
-                if (dir == Direction.ACROSS) {
-                    // add to col
-                    if (testBoard.get(elt.getRow()).get(elt.getCol() + i) == '#') {
-                        testBoard.get(elt.getRow()).set(elt.getCol()+i, word.charAt(i));
-                    } else if (testBoard.get(elt.getRow()).get(elt.getCol() + i) != word.charAt(i)) {
-                        return false;
-                    }
+        }
+        this.grid[index] = letter;
+        if (wasCorrect != nowCorrect) {
+            this.correctCells += nowCorrect ? 1 : -1;
+        }
+        if (letter == EMPTY) {
+            markDirty(index);
+        }
+    }
 
-                } else if (dir == Direction.DOWN) {
-                    // add to row
-                    if (testBoard.get(elt.getRow() + i).get(elt.getCol()) == '#') {
-                        testBoard.get(elt.getRow() + i).set(elt.getCol(), word.charAt(i));
-                    } else if (testBoard.get(elt.getRow() + i).get(elt.getCol()) != word.charAt(i)) {
-                        return false;
-                    }
-                }
-            }
+    /**
+     * Records that a cell must be revisited by the next updateBoard
+     * @param index index of the cell in grid
+     */
+    private void markDirty(int index) {
+        if (!this.isDirty[index]) {
+            this.isDirty[index] = true;
+            this.dirtyCells[this.dirtyCount++] = index;
         }
-        return true;
     }
+    
     /**
-     * Modifies blockOwn so that each position occupied by answer contains 
-     * answer in its values
+     * @param answer a word of this puzzle
+     * @return the owners bit that marks a cell as covered by a guess for answer
+     */
+    private static byte ownerBit(Word answer) {
+        return answer.getDir() == Direction.ACROSS ? OWNED_ACROSS : OWNED_DOWN;
+    }
+    
+    /**
+     * Marks each cell occupied by answer as covered by a guess for answer
      * @param answer Word with the same wordID as the guess
      * 
      */
     private void updateBlockOwn(Word answer) {
-        Position start= answer.getPos();
-        Position end= answer.getEnd();
-        if (answer.getDir()==Direction.ACROSS) {
-            for (int i=start.getCol(); i<end.getCol(); i++) {
-                Position query= new Position(start.getRow(),i);
-                Set<Word> currentList= this.blockOwn.get(query);
-                currentList.add(answer);
-                this.blockOwn.put(query, currentList);
-            }
+        byte bit = ownerBit(answer);
+        for (int index : this.wordCells[answer.getSlot()]) {
+            this.owners[index] |= bit;
         }
-        else if (answer.getDir()==Direction.DOWN) {
-            for (int i=start.getRow(); i<end.getRow(); i++) {
-                Position query= new Position(i,start.getCol());
-                Set<Word> currentList= this.blockOwn.get(query);
-                currentList.add(answer);
-                this.blockOwn.put(query, currentList);
-                
-                
-            }
-        }
-
     }
     /**
-     * Modifies blockOwn so that none of its values contain answer
+     * Marks every cell occupied by answer as no longer covered by a guess for answer
      * @param answer Word with the same wordID as the guess
      * 
      */
     private void removeGuess(Word answer) {
-        for (Position i: blockOwn.keySet()) {
-            blockOwn.get(i).remove(answer);
+        byte bit = ownerBit(answer);
+        for (int index : this.wordCells[answer.getSlot()]) {
+            this.owners[index] &= ~bit;
+            markDirty(index);
         }
     }
     /**
      * Updates board after guesses are removed, and sets spaces to be blank
-     * in accordance with pset logic
-     * 
+     * in accordance with pset logic. Only the cells marked dirty since the last
+     * update, and the words through them, are visited.
+     *
      */
-    private synchronized void updateBoard() {
-        for (Position i: blockOwn.keySet()) {
-            if (blockOwn.get(i).isEmpty()) {
-                board.get(i.getRow()).set(i.getCol(), '#');
+    private void updateBoard() {
+        for (int i = 0; i < dirtyCount; i++) {
+            int index = dirtyCells[i];
+            if (owners[index] == 0) {
+                setCell(index, EMPTY);
             }
         }
-         List<Integer> removal= new ArrayList<Integer>();
-         for (Integer i: this.userGuess.keySet()) {
-                    String ans=this.returnGuess(this.answers.get(i));
-                    if (ans.contains("#")) {
-                        removal.add(i);
-                    }
-        
-         }
-          for (Integer i: removal) {
-                    userGuess.remove(i);
-                }
+        for (int i = 0; i < dirtyCount; i++) {
+            int index = dirtyCells[i];
+            forgetBlankGuess(acrossAt[index]);
+            forgetBlankGuess(downAt[index]);
+            isDirty[index] = false;
+        }
+        dirtyCount = 0;
+    }
 
+    /**
+     * Removes the guess for a word from userGuess if any of its cells is blank
+     * @param answer a word of this puzzle, or null
+     */
+    private void forgetBlankGuess(Word answer) {
+        if (answer == null || !this.userGuess.containsKey(answer.getNum())) {
+            return;
+        }
+        for (int index : this.wordCells[answer.getSlot()]) {
+            if (this.grid[index] == EMPTY) {
+                this.userGuess.remove(answer.getNum());
+                return;
+            }
+        }
     }
     
     /**
@@ -273,16 +268,15 @@ public class Board implements Crossword{
          * @return String containing confirmed words, player scores, and player ids of guesses
          */
         public String tryOrChallengeString() {
-            String playerPoints=this.playerScores.toString();
-            String words="";
+            StringBuilder str = new StringBuilder("%Confirmed");
             for (Word i: this.confirmedWord) {
-                words=words+i.getNum()+" ";
+                str.append(i.getNum()).append(' ');
             }
-            String guesses="";
-            for (Integer i: this.userGuess.keySet()) {
-                guesses=guesses+i+":" +this.userGuess.get(i)+" ";
+            str.append("&PlayerPoints:").append(this.playerScores).append('&');
+            for (Map.Entry<Integer, String> guess: this.userGuess.entrySet()) {
+                str.append(guess.getKey()).append(':').append(guess.getValue()).append(' ');
             }
-            return "%"+"Confirmed"+words+ "&" + "PlayerPoints:"+playerPoints + "&"+ guesses;
+            return str.toString();
         }
         
         
@@ -297,155 +291,77 @@ public class Board implements Crossword{
     private List<Word> returnConflict(Integer wordIndex, String guess){
         List<Word> finalList= new ArrayList<Word>();
         Word answer= this.answers.get(wordIndex);
-        Position start= answer.getPos();
-        Position end = answer.getEnd();
-        if (answer.getDir()==Direction.ACROSS) {
-            for (int i=start.getCol(); i<end.getCol(); i++) {
-                Position query= new Position(start.getRow(),i);
-                Word conflict= posToWordDown.get(query);
-                int indexLetter= i- start.getCol();
-                String guessLetter= guess.substring(indexLetter,indexLetter+1);
-                if (!(conflict==null)) {
-                if (!conflict.returnLetter(query).equals(guessLetter)) {
-                    finalList.add(conflict);
-                }
-                }
-            }
-        }
-        else if (answer.getDir()==Direction.DOWN) {
-            for (int i=start.getRow(); i<end.getRow(); i++) {
-                Position query= new Position(i,start.getCol());
-                Word conflict= posToWordAcross.get(query);
-                int indexLetter= i - start.getRow();
-                String guessLetter= guess.substring(indexLetter, indexLetter+1);
-                if (!(conflict==null)) {
-                if (! conflict.returnLetter(query).equals(guessLetter)) {
-                    finalList.add(conflict);
-                }
-                }
-                
-                
+        Word[] crossingAt = (answer.getDir() == Direction.ACROSS) ? this.downAt : this.acrossAt;
+        int[] indices = this.wordCells[answer.getSlot()];
+        for (int i = 0; i < indices.length; i++) {
+            Word conflict = crossingAt[indices[i]];
+            // the crossing word's letter in this cell is the solution letter, as the puzzle is consistent
+            if (conflict != null && this.solution[indices[i]] != guess.charAt(i)) {
+                finalList.add(conflict);
             }
         }
         return finalList;
-        
-        
-        
     }
     
+
     /**
-     * Returns a list of dictionaries that map a position to the word occupied by that position
-     * @return list of dictionaries. First element of the list maps each position to the horizontal word occupied
-     * by that position. Second element of the list maps each position to the vertical word occupied by that position
-     * 
+     * @return a string of the numbers and where they are on the board to be displayed
      */
-    private List<Map<Position, Word>> returnPosWordDict() {
-//        List<List<Character>> testBoard = new ArrayList<>();
-//        for (int i = 0; i < this.rows; i++) {
-//            List<Character> newRow = new ArrayList<>();
-//            for (int j = 0; j < this.cols; j++) {
-//                newRow.add('#');
-//            }
-//            testBoard.add(newRow);
-//        }
-        
-        Map<Position,Word> posToWordAcross= new HashMap<Position,Word>();
-        Map<Position,Word> posToWordDown= new HashMap<Position,Word>();
-        
-        for (Word elt: this.answers.values()) {
-            Direction dir = elt.getDir();
-            for (int i = 0; i<elt.size(); i++) {
-                if (dir == Direction.ACROSS) {
-                    posToWordAcross.put(new Position(elt.getRow(), elt.getCol()+i), elt);
-                } else if (dir == Direction.DOWN) {
-                    posToWordDown.put(new Position(elt.getRow()+i, elt.getCol()), elt);
-
-                }
-            }
-        }
-        List<Map<Position,Word>> ansList= new ArrayList<Map<Position, Word>>();
-        ansList.add(posToWordAcross);
-        ansList.add(posToWordDown);
-        return ansList;
+    public String getNumString() {
+        return this.template.getNumString();
     }
 
     /**
-     * @param elt the word to be checked
-     * @param others the list of other words in the same direction
-     * @return true if the new word overlaps with the previous words provided
+     * @return a string of all the cells on the board and where they are to be displayed
      */
-    private static boolean sameDirOverlap(Word elt, List<Word> others) {
-        int eltStart = 0, eltEnd = 0;
-        int eltVal = 0;
-        Direction dir = elt.getDir();
-
-        if (dir == Direction.ACROSS) {
-            eltStart = elt.getCol();
-            eltEnd = elt.getEnd().getCol()-1;
-            eltVal = elt.getRow();
-        } else if (dir == Direction.DOWN) {
-            eltStart = elt.getRow();
-            eltEnd = elt.getEnd().getRow()-1;
-            eltVal = elt.getCol();
-        }
+    public String getCellString() {
+        return this.template.getCellString();
+    }
 
-        for(Word other : others) {
-            int otherStart = 0, otherEnd = 0;
-            int otherVal = 0;
-            if (dir == Direction.ACROSS) {
-                otherStart = other.getCol();
-                otherEnd = other.getEnd().getCol()-1;
-                otherVal = other.getRow();
-            } else if (dir == Direction.DOWN) {
-                otherStart = other.getRow();
-                otherEnd = other.getEnd().getRow()-1;
-                otherVal = other.getCol();
-            }
-            if (eltVal == otherVal &&
-                    ((otherStart <= eltStart && eltStart <= otherEnd) ||
-                    (eltStart <= otherStart && otherStart <= eltEnd))) {
-                return true;
+    /**
+     * @return a string of all of the characters on the board and where they are to be displayed
+     */
+    public String getCharacterString() {
+        if (this.characterString == null) {
+            // rendered again only after a move actually changed a letter
+            StringBuilder str = new StringBuilder("Characters ");
+            for (int k = 0; k < this.allCellIndex.length; k++) {
+                char letter = this.grid[this.allCellIndex[k]];
+                if (letter != EMPTY) {
+                    str.append("char").append(letter).append(this.cellLabels[k]);
+                }
             }
+            this.characterString = str.toString();
         }
-
-        return false;
+        return this.characterString;
     }
 
     /**
-     * @return a string of the numbers and where they are on the board to be displayed
+     * Starts tracking the cells changed by a new move
      */
-    public String getNumString() {
-        StringBuilder str = new StringBuilder();
-        str.append("Numbers ");
-        for (Word elt : answers.values()) {
-            String dir = (elt.getDir() == Board.Direction.ACROSS)? "ACROSS": "DOWN";
-            str.append("num" + elt.getNum() + "Dir" + dir +"Coor"+ " (" + elt.getRow() + "," + elt.getCol() + ") ");
-        }
-        return str.toString();
+    private void beginMove() {
+        this.moves++;
+        this.changedCount = 0;
     }
 
     /**
-     * @return a string of all the cells on the board and where they are to be displayed
+     * @return the number of moves that have changed this board, so a client that has seen the
+     *         board at version v can be brought to version v + 1 by getDeltaString()
      */
-    public String getCellString() {
-        StringBuilder str = new StringBuilder();
-        str.append("Cells ");
-        for (Position pos : allCells) {
-            str.append("#" + " (" + pos.getRow() + "," + pos.getCol() + ") ");
-        }
-        return str.toString();
+    public int getVersion() {
+        return this.version;
     }
 
     /**
-     * @return a string of all of the characters on the board and where they are to be displayed
+     * @return the cells whose letter the latest move changed, in the format of getCharacterString(),
+     *         with EMPTY as the letter of a cell that was cleared
      */
-    public String getCharacterString() {
-        StringBuilder str = new StringBuilder();
-        str.append("Characters ");
-        for (Position pos : allCells) {
-            if (this.board.get(pos.getRow()).get(pos.getCol()) != '#') {
-                str.append("char" +this.board.get(pos.getRow()).get(pos.getCol()) + " (" + pos.getRow() + "," + pos.getCol() + ") ");
-            }
+    public String getDeltaString() {
+        StringBuilder str = new StringBuilder("Characters ");
+        for (int i = 0; i < this.changedCount; i++) {
+            int index = this.changedCells[i];
+            str.append("char").append(this.grid[index])
+               .append(" (").append(index / this.cols).append(",").append(index % this.cols).append(") ");
         }
         return str.toString();
     }
@@ -454,20 +370,14 @@ public class Board implements Crossword{
      * @return a string that represents the response to the client that contains all information about the board
      */
     public String getClientString() {
-        return this.name + " | " + this.description + " | " +  this.getHints() + "|" + this.getNumString() + "|"+ this.getCellString() +"|"+ this.getCharacterString();
+        return this.template.getClientPrefix() + this.getCharacterString();
     }
 
     /**
      * @return a string that contains all hints and their numbers
      */
     public String getHints() {
-        StringBuilder str = new StringBuilder();
-        str.append("Hints ");
-        for (Integer num : this.hints.keySet()) {
-            String dir = (this.answers.get(num).getDir() == Direction.ACROSS)? "ACROSS" : "DOWN";
-            str.append(num + " " + dir + " " + this.hints.get(num) + " ");
-        }
-        return str.toString();
+        return this.template.getHints();
     }
     
     /**
@@ -504,81 +414,30 @@ public class Board implements Crossword{
      * @param guess the guess
      */
     private void guessBoard(Word answer, String guess) { //sets board to guess
-        Position start= answer.getPos();
-        Position end = answer.getEnd();
-        if (answer.getDir()==Direction.ACROSS) {
-            for (int i=start.getCol(); i<end.getCol(); i++) {
-                Position query= new Position(start.getRow(),i);
-                Integer index= i- start.getCol();
-                Character guessLetter= guess.charAt(index);
-
-                    this.board.get(query.getRow()).set(query.getCol(), guessLetter);
-
-                
-            }
-        }
-        else if (answer.getDir()==Direction.DOWN) {
-            for (int i=start.getRow(); i<end.getRow(); i++) {
-                Position query= new Position(i,start.getCol());
-                Integer index= i- start.getRow();
-                Character guessLetter= guess.charAt(index);
-                this.board.get(query.getRow()).set(query.getCol(), guessLetter);
-
-                
-                
-            }
+        int[] indices = this.wordCells[answer.getSlot()];
+        for (int i = 0; i < indices.length; i++) {
+            setCell(indices[i], guess.charAt(i));
         }
-        
-        
-        
     }
     
     
     private void removeBoardGuess(Word answer, String guess) { //sets board to guess
-        Position start= answer.getPos();
-        Position end = answer.getEnd();
-        if (answer.getDir()==Direction.ACROSS) {
-            for (int i=start.getCol(); i<end.getCol(); i++) {
-                Position query= new Position(start.getRow(),i);
-                Integer index= i- start.getCol();
-                Character guessLetter= guess.charAt(index);
-                
-                if (!blockOwn.get(query).isEmpty()) {
-                    this.board.get(query.getRow()).set(query.getCol(), guessLetter);
-                }
-                
+        int[] indices = this.wordCells[answer.getSlot()];
+        for (int i = 0; i < indices.length; i++) {
+            boolean owned = this.owners[indices[i]] != 0;
+            // across words only rewrite cells still owned by a crossing guess, down words only unowned ones
+            if (owned == (answer.getDir() == Direction.ACROSS)) {
+                setCell(indices[i], guess.charAt(i));
             }
         }
-        else if (answer.getDir()==Direction.DOWN) {
-            for (int i=start.getRow(); i<end.getRow(); i++) {
-                Position query= new Position(i,start.getCol());
-                Integer index= i- start.getRow();
-                Character guessLetter= guess.charAt(index);
-                if (blockOwn.get(query).isEmpty()) {
-                this.board.get(query.getRow()).set(query.getCol(), guessLetter);
-                }
-                
-                
-            }
-        }
-        
-        
-        
     }
     /**
          * Returns whether or not board is completed
          * @return boolean representing whether or not board is done
          * 
          */
-   public synchronized boolean isDone() {
-       for (Word i: this.answers.values()) {
-           if (!(i.getWord().equals(returnGuess(i)))) {
-               return false;
-               
-           }
-           
-       }
-       return true;
+   public boolean isDone() {
+       return this.correctCells == this.coveredCells;
    }
     
     
@@ -588,24 +447,20 @@ public class Board implements Crossword{
      * @return the current guess for a given answer
      */
     private String returnGuess(Word answer) { //returns current guess for board
-        Position start= answer.getPos();
-        Position end = answer.getEnd();
-        String finalGuess="";
-        if (answer.getDir()==Direction.ACROSS) {
-            for (int i=start.getCol(); i<end.getCol(); i++) {
-                Position query= new Position(start.getRow(),i);
-                finalGuess+=this.board.get(query.getRow()).get(query.getCol());
-            }
+        StringBuilder finalGuess = new StringBuilder();
+        for (int index : this.wordCells[answer.getSlot()]) {
+            finalGuess.append(this.grid[index]);
         }
-        else if (answer.getDir()==Direction.DOWN) {
-            for (int i=start.getRow(); i<end.getRow(); i++) {
-                Position query= new Position(i,start.getCol());
-                finalGuess+=this.board.get(query.getRow()).get(query.getCol());
-                
-                
-            }
-        }
-        return finalGuess;
+        return finalGuess.toString();
+    }
+    
+    /**
+     * Marks a word as confirmed
+     * @param answer a word of this puzzle that is not confirmed yet
+     */
+    private void confirm(Word answer) {
+        this.confirmedWord.add(answer);
+        this.confirmedSlots.set(answer.getSlot());
     }
     
     /**
@@ -625,7 +480,8 @@ public class Board implements Crossword{
      * @param playerId the id of the player making the request
      * @return information regarding the success or failure of the attempt
      */
-    public synchronized String tryWord(int id, String guess, String playerId) {
+    public String tryWord(int id, String guess, String playerId) {
+        this.beginMove();
         String attempt= "failure";
         Word answer= answers.get(id);
         boolean conditionFirst= guess.length()== answer.size();
@@ -641,7 +497,7 @@ public class Board implements Crossword{
         if (conditionFirst) {
         conflictList= returnConflict(id, guess);
         for (Word i: conflictList) {
-            if (this.confirmedWord.contains(i) || someoneElse) {
+            if (this.confirmedSlots.get(i.getSlot()) || someoneElse) {
                 conditionSecond=false;
                 break;
             }
@@ -649,6 +505,7 @@ public class Board implements Crossword{
         }
         if (conditionFirst && conditionSecond) {
             attempt= "success";
+            this.version++;
             this.userGuess.put(id, playerId);
             this.updateBlockOwn(answer);
 
@@ -682,15 +539,17 @@ public class Board implements Crossword{
      * @param playerId the id of the player making the request
      * @return information regarding the success or failure of the attempt
      */
-    public synchronized String challengeWord(int id, String word, String playerId) {
+    public String challengeWord(int id, String word, String playerId) {
+        this.beginMove();
         Word wordAnswer= this.answers.get(id);
         String playerEnter= this.userGuess.get(id);
         String existingWord= this.returnGuess(wordAnswer);
-        if ((!playerId.equals(playerEnter)) && (!this.confirmedWord.contains(wordAnswer)) 
+        if ((!playerId.equals(playerEnter)) && (!this.confirmedSlots.get(wordAnswer.getSlot())) 
                 && (! word.equals(existingWord)) && (word.length()==wordAnswer.size())) {
+            this.version++;
             String rightWord= wordAnswer.getWord();
             if (rightWord.equals(existingWord)) {
-                this.confirmedWord.add(wordAnswer);
+                this.confirm(wordAnswer);
                 this.updateScore(playerId, -1);
                 String addition="";
                 if (this.isDone()) {
@@ -702,7 +561,7 @@ public class Board implements Crossword{
                 return addition+ "OrigWordCorrect Confirmed -1";
             } else {
                 if (word.equals(rightWord)) {
-                    this.confirmedWord.add(wordAnswer);
+                    this.confirm(wordAnswer);
                     this.updateScore(playerId, 2);
                     List<Word> conflictList= returnConflict(id, word);
                     this.userGuess.put(id, playerId);
@@ -748,7 +607,7 @@ public class Board implements Crossword{
      * Returns the name of the puzzle to display to the client.
      * @return the puzzle name
      */
-    public synchronized String getName() {
+    public String getName() {
         return this.name;
     }
     
@@ -15,11 +15,15 @@ import java.awt.event.ComponentListener;
 import java.awt.event.ContainerEvent;
 import java.awt.event.ContainerListener;
 //import java.awt.event*;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
@@ -63,6 +67,9 @@ public class Client {
 
     private static ClientStatus status = ClientStatus.START;
     private static String clientID;
+    // the server switches to frames right after our first START, see WireCodec
+    private static volatile boolean sendFrames = false;
+    private static volatile boolean receiveFrames = false;
 
     /**
      * Start a Crossword Extravaganza client.
@@ -74,14 +81,14 @@ public class Client {
         final String host = arguments.remove();
 
         Socket socket = new Socket(host,4949); // port defined by spec
-        BufferedReader socketIn = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
-        PrintWriter socketOut = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), UTF_8), true);
+        DataInputStream socketIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        OutputStream socketOut = new BufferedOutputStream(socket.getOutputStream());
         BufferedReader readFromUser = new BufferedReader(new InputStreamReader(System.in, UTF_8));
 
         try {
             System.out.println("You have successfully connected to the server!");
             System.out.println("Please enter a unique ID");
-            String ids = socketIn.readLine();
+            String ids = receive(socketIn);
             List<String> idsArr = List.of(ids.substring(1, ids.length()-1).split(", "));
             System.out.println(idsArr);
             //socketOut.println(userInput);
@@ -90,8 +97,7 @@ public class Client {
             while(visible) {
                 visible = window.isVisible();
             }
-            socketOut.println("socket is about to close");
-            socketOut.flush();
+            send(socketOut, "socket is about to close");
         } finally {
             socket.close();
             socketOut.close();
@@ -127,6 +133,46 @@ public class Client {
 
 
 
+    /**
+     * Send one line to the server, as a frame once frames have been negotiated.
+     * @param socketOut stream connected to the server
+     * @param line the line to send
+     */
+    private static void send(OutputStream socketOut, String line) {
+        synchronized (socketOut) {
+            try {
+                if (sendFrames) {
+                    socketOut.write(WireCodec.encode(line));
+                } else {
+                    socketOut.write((line + "\n").getBytes(UTF_8));
+                    sendFrames = WireCodec.requestsFrames(line);
+                }
+                socketOut.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Receive one line from the server.
+     * @param socketIn stream connected to the server
+     * @return the next line, or null if the server closed the connection
+     * @throws IOException if the connection fails
+     */
+    private static String receive(DataInputStream socketIn) throws IOException {
+        if (receiveFrames) {
+            ByteBuffer frame = WireCodec.readFrame(socketIn);
+            return frame == null ? null : WireCodec.decodeLine(frame);
+        }
+        String line = WireCodec.readLine(socketIn);
+        if (sendFrames && line != null && line.startsWith("START ")) {
+            // the response to our START, the last text line
+            receiveFrames = true;
+        }
+        return line;
+    }
+
     //not necessary for warmup but implemented
 
 
@@ -135,7 +181,7 @@ public class Client {
      * @param socketOut
      * @param idsArr
      */
-    private static JFrame startGame (PrintWriter socketOut, BufferedReader socketIn, List<String> idsArr){
+    private static JFrame startGame (OutputStream socketOut, DataInputStream socketIn, List<String> idsArr){
         //JPanel for wait
         JPanel contentPaneWait = new JPanel();
         JLabel waitLabel = new JLabel("Awaiting a second player...");
@@ -222,7 +268,7 @@ public class Client {
         JButton chooseButton = new JButton("Enter");
         chooseButton.addActionListener((event) -> {
             String request = textboxChoose.getText();
-            socketOut.println(request + " " + clientID);
+            send(socketOut, request + " " + clientID);
             
         });
         contentPaneChoose.add(chooseInstructions);
@@ -239,10 +285,10 @@ public class Client {
             String request = textboxScore.getText();
             String[] requestSplit = request.split(" ");
             if(requestSplit[0].equals("EXIT")) {
-                socketOut.println("EXIT " + clientID);
+                send(socketOut, "EXIT " + clientID);
             } else if (requestSplit[0].equals("NEW") && requestSplit[1].equals("MATCH")) {
                 //socketOut.println("EXIT " + clientID);
-                socketOut.println("NEW MATCH " + clientID);
+                send(socketOut, "NEW MATCH " + clientID);
             }
         });
         
@@ -256,9 +302,9 @@ public class Client {
             //want to send = TRY [client id] [word id] [word attempt]
             String[] requestSplit = request.split(" ");
             if(requestSplit[0].equals("TRY") || requestSplit[0].equals("CHALLENGE")) {
-                socketOut.println(requestSplit[0] + " " + clientID + " " + requestSplit[1] + " " + requestSplit[2]);
+                send(socketOut, requestSplit[0] + " " + clientID + " " + requestSplit[1] + " " + requestSplit[2]);
             } else if(request.equals("EXIT")) {
-                socketOut.println("SHOWSCORE " + clientID);
+                send(socketOut, "SHOWSCORE " + clientID);
             }
             //socketOut.println(request);
         });
@@ -283,7 +329,7 @@ public class Client {
                 startInstructions.setText("Please try again, without using whitespace");
                 startInstructions.repaint();
             } else {
-                socketOut.println("START " + id);             
+                send(socketOut, "START " + id + " DELTA " + WireCodec.BINARY);             
             }
         });
 
@@ -317,9 +363,10 @@ public class Client {
             public void run() {
                 ClientStatus drawingStatus = drawStatus;
                 CrosswordCanvas canvas = null;
+                int boardVersion = -1; // version of the board shown on canvas
                 while (true) {
                     try {
-                        String answer=socketIn.readLine();
+                        String answer=receive(socketIn);
                         String[] arrays=answer.split("%");
                         String serverInput=arrays[0];
                         String tryChallengeInput="";
@@ -474,7 +521,28 @@ public class Client {
                             break;
                         }
                         case PLAY: {
+                            if (inputSplitInitial.length < 2) {
+                                break;
+                            }
                             String info = inputSplitInitial[1];
+                            List<String> header = Arrays.asList(inputSplit);
+                            int delta = header.indexOf("DELTA");
+                            if (delta >= 0) {
+                                // a delta only applies to the board version it was computed from,
+                                // anything else means we missed an update and need the whole board
+                                if (canvas == null || Integer.parseInt(inputSplit[delta + 1]) != boardVersion) {
+                                    send(socketOut, "SYNC " + clientID);
+                                } else {
+                                    boardVersion = Integer.parseInt(inputSplit[delta + 2]);
+                                    canvas.applyDelta(info, tryChallengeInput);
+                                    canvas.repaint();
+                                }
+                                break;
+                            }
+                            int full = header.indexOf("FULL");
+                            if (full >= 0) {
+                                boardVersion = Integer.parseInt(inputSplit[full + 1]);
+                            }
                             String[] infoSplit = info.split("\\|");
                             
                             if (canvas != null) window.remove(canvas);
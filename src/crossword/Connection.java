@@ -0,0 +1,37 @@
+package crossword;
+
+/**
+ * A client connection that the server writes protocol lines to.
+ * Implementations must be safe to call from any thread.
+ */
+interface Connection {
+
+    /** Bytes queued for a client that has not read them yet before it is disconnected as too slow. */
+    public static final int MAX_PENDING_BYTES = 1 << 20;
+
+    /**
+     * Queue a message to be written to the client, followed by a newline, and return without
+     * waiting for the client to read it. If the client already has more than MAX_PENDING_BYTES
+     * queued, it is disconnected instead.
+     * @param line the message to send, one or more protocol lines separated by newlines (such as
+     *        a TRY response followed by its SHOWSCORE line); a client that uses frames gets one
+     *        frame for each of them
+     */
+    public void send(String line);
+
+    /**
+     * @return bytes queued for the client and not yet written to its socket
+     */
+    public int queuedBytes();
+
+    /**
+     * Send every later line as a binary frame (see WireCodec) instead of a text line.
+     */
+    public void useFrames();
+
+    /**
+     * Close the connection, after writing the lines already queued if the client reads them
+     * promptly. Further calls to send are ignored.
+     */
+    public void close();
+}
@@ -10,7 +10,7 @@ import java.awt.Graphics;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.JComponent;
 
@@ -26,7 +26,7 @@ class CrosswordCanvas extends JComponent {
     final List<String> cells;
     final List<String> numbers;
     final Map<String,String> chars;
-    final String tryOrChallenge;
+    volatile String tryOrChallenge;
     public CrosswordCanvas(String hints, String numbers, String cells, String chars, String arg) {
         this.hints=hints;
         this.numbers= parseNums(numbers);
@@ -47,8 +47,25 @@ class CrosswordCanvas extends JComponent {
         return ans;
     }
     
+    /**
+     * Updates the letters and the game status after a move
+     * @param changedChars the cells whose letter changed, in the format of the characters string,
+     *        with # as the letter of a cell that was cleared
+     * @param arg the new game status
+     */
+    public void applyDelta(String changedChars, String arg) {
+        for (Map.Entry<String,String> change : parseChars(changedChars).entrySet()) {
+            if (change.getValue().equals("#")) {
+                this.chars.remove(change.getKey());
+            } else {
+                this.chars.put(change.getKey(), change.getValue());
+            }
+        }
+        this.tryOrChallenge=arg;
+    }
+    
     private static Map<String,String> parseChars(String chars) {
-        Map<String,String> ans = new HashMap<String,String>();
+        Map<String,String> ans = new ConcurrentHashMap<String,String>();
         String[] charList= chars.split("char"); //ignore first element! 
         for (int i=1; i< charList.length; i++) {
             String[] coor= charList[i].split(",");
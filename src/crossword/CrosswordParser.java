@@ -1,6 +1,7 @@
 package crossword;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 import edu.mit.eecs.parserlib.ParseTree;
@@ -20,13 +21,33 @@ public class CrosswordParser {
         FILE, ENTRY, NAME, DESCRIPTION, STRING, STRINGINDENT, WORDNAME, CLUE, DIRECTION, ROW, COL, INT, WHITESPACE, WHITESPACEEXCLUDINGNEWLINE, JAVACOMMENT;
     }
     
-    private static Parser<CrosswordGrammar> parser = makeParser();
+    private static final Log LOG = Log.named("parser");
+    
+    /** The grammar, as a resource next to this class. */
+    private static final String GRAMMAR_RESOURCE = "Crossword.g";
+    
+    /**
+     * Holds the parser compiled from the grammar. Compiling it is most of the time of the first
+     * parse in a JVM, and most puzzles never need it because FastCrosswordParser reads them, so it
+     * is compiled only when the first puzzle that does need it is parsed.
+     */
+    private static class Compiled {
+        private static final Parser<CrosswordGrammar> PARSER = makeParser();
+    }
     
     private static Parser<CrosswordGrammar> makeParser() {
-        try {
-            // read the grammar as a file, relative to the project root.
-            final File grammarFile = new File("src/crossword/Crossword.g");
-            return Parser.compile(grammarFile, CrosswordGrammar.FILE);
+        final long start = System.nanoTime();
+        try (InputStream grammar = CrosswordParser.class.getResourceAsStream(GRAMMAR_RESOURCE)) {
+            final Parser<CrosswordGrammar> parser;
+            if (grammar != null) {
+                parser = Parser.compile(grammar, CrosswordGrammar.FILE);
+            } else {
+                // not on the classpath when built without copying resources; read it from the
+                // source tree, relative to the project root
+                parser = Parser.compile(new File("src/crossword/" + GRAMMAR_RESOURCE), CrosswordGrammar.FILE);
+            }
+            LOG.debug("compiled the grammar in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return parser;
             
         // Parser.compile() throws two checked exceptions.
         // Translate these checked exceptions into unchecked RuntimeExceptions,
@@ -43,9 +64,27 @@ public class CrosswordParser {
      * @param string to be parsed
      * @return the crosswordPuzzle parsed from string
      * @throws UnableToParseException in the case that the puzzle is mal-formatted
+     * @throws IllegalArgumentException in the case that the puzzle is not consistent or its grid is too large
      */
     public static Crossword parse(final String string) throws UnableToParseException {
-        final ParseTree<CrosswordGrammar> parseTree = parser.parse(string);
+        // most puzzles are read by the hand-written parser; it declines anything it cannot
+        // read exactly as the grammar would, which is then parsed with parserlib
+        final Board board = FastCrosswordParser.parse(string);
+        if (board != null) {
+            return board;
+        }
+        return parseWithParserlib(string);
+    }
+    
+    /**
+     * Parse with the parserlib grammar in Crossword.g, without trying FastCrosswordParser first.
+     * @param string to be parsed
+     * @return the crosswordPuzzle parsed from string
+     * @throws UnableToParseException in the case that the puzzle is mal-formatted
+     * @throws IllegalArgumentException in the case that the puzzle is not consistent or its grid is too large
+     */
+    static Crossword parseWithParserlib(final String string) throws UnableToParseException {
+        final ParseTree<CrosswordGrammar> parseTree = Compiled.PARSER.parse(string);
         //System.out.println("hi");
 
         // display the parse tree in various ways, for debugging only
@@ -60,6 +99,25 @@ public class CrosswordParser {
         return crossword;
     }
     
+    /**
+     * Make the board of a parsed puzzle file.
+     * @param name the name of the puzzle, as written in the file
+     * @param description the description of the puzzle, as written in the file
+     * @param entries the words of the puzzle, numbered in the order of the file
+     * @return the board
+     * @throws IllegalArgumentException if the puzzle is not consistent or its grid is too large
+     */
+    static Board makeBoard(String name, String description, List<Word> entries) {
+        if (LOG.isEnabled(Log.Level.DEBUG)) {
+            LOG.debug("entries " + entries);
+        }
+        try {
+            return new Board(name, description, entries);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("puzzle " + name + " is invalid: " + e.getMessage(), e);
+        }
+    }
+    
     /**
      * parses a test puzzle
      * @param args default parameter to main method
@@ -80,15 +138,7 @@ public class CrosswordParser {
                     for(int i = 2; i < children.size(); i++) {
                         entries.add((Word)(makeAbstractSyntaxTree(children.get(i), i-1)));
                     }
-                    try {
-                        System.out.println(entries);
-                        return new Board(name.extractText(), description.extractText(), entries);
-                    } catch (Exception e) {
-                        // Auto-generated catch block
-                        e.printStackTrace();
-                        Boolean val = false;
-                        assert(val); // board inconsistent TODO fix somehow
-                    }
+                    return makeBoard(name.extractText(), description.extractText(), entries);
                 }
             case NAME:
             {
@@ -0,0 +1,356 @@
+package crossword;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single-pass recursive-descent parser for puzzle files, used by CrosswordParser before it falls
+ * back to the parserlib grammar in Crossword.g. It reads the text once, without building a parse
+ * tree, and only allocates the strings and Words of the result. It can also read a file a buffer
+ * at a time, handing each entry to a Listener, for files too large to hold in memory.
+ *
+ * It accepts the usual layout of the grammar: the header line, then entries separated by
+ * whitespace and // comments, each of the form (word, "clue", DIRECTION, row, col), with
+ * whitespace and comments allowed after "(" and after each ",". Anything else the grammar leaves
+ * open, such as whitespace before a "," (which parserlib keeps in the text of the field), a
+ * missing or repeated ")", numbers too large for an int or a syntax error, is declined, so that
+ * CrosswordParser returns exactly what the parserlib path returns, or throws exactly what it throws.
+ */
+class FastCrosswordParser {
+    // AF(in, buf, pos, limit, mark, line, column) = a parser that has read the text up to buf[pos], which is at
+    //      line and column of the text, and holds buf[mark..limit) (buf[pos..limit) if mark < 0) of the text read
+    //      from in; if in is null, buf[0..limit) is the whole text
+    // RI: 0 <= pos <= limit <= buf.length, mark < 0 or mark <= pos, line >= 1, column >= 1
+    // Thread Safety: confined to the thread of one parse or read call
+
+    /** Told about each part of a puzzle file as it is read. */
+    interface Listener {
+        /**
+         * @param name the name of the puzzle, as written in the file
+         * @param description the description of the puzzle, as written in the file
+         */
+        void header(String name, String description);
+
+        /**
+         * @param word the next entry, numbered in the order of the file
+         * @param line line of its "(", from 1
+         * @param column column of its "(", from 1
+         */
+        void entry(Word word, int line, int column);
+
+        /**
+         * Called instead of further entries when the text is outside the layout accepted.
+         * @param line line where reading stopped, from 1
+         * @param column column where reading stopped, from 1
+         * @param expected what the parser expected there
+         */
+        void stopped(int line, int column, String expected);
+    }
+
+    /** Most digits of a row or column read here; longer numbers are left to parserlib. */
+    private static final int MAX_DIGITS = 9;
+    /** Size of the buffer when reading from a Reader; it grows for longer tokens. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int EOF = -1;
+
+    private final Reader in;
+    private char[] buf;
+    private int pos = 0;
+    private int limit;
+    private int mark = -1;
+    private int line = 1;
+    private int column = 1;
+    private String expected = null;
+
+    private FastCrosswordParser(String text) {
+        this.in = null;
+        this.buf = text.toCharArray();
+        this.limit = buf.length;
+    }
+
+    private FastCrosswordParser(Reader in) {
+        this.in = in;
+        this.buf = new char[BUFFER_SIZE];
+        this.limit = 0;
+    }
+
+    /** Thrown inside the parser when the text is outside what it accepts. */
+    private static class Declined extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private Declined() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final Declined DECLINED = new Declined();
+
+    /**
+     * @param text the text of a puzzle file
+     * @return the puzzle that CrosswordParser.parseWithParserlib would return for text, or null
+     *         if text is outside the layout this parser accepts
+     * @throws IllegalArgumentException if text is in that layout but the puzzle is not consistent
+     *         or its grid is too large, as parseWithParserlib would
+     */
+    static Board parse(String text) {
+        List<Word> entries = new ArrayList<>();
+        String[] header = new String[2];
+        try {
+            new FastCrosswordParser(text).file(new Listener() {
+                @Override public void header(String name, String description) {
+                    header[0] = name;
+                    header[1] = description;
+                }
+                @Override public void entry(Word word, int line, int column) {
+                    entries.add(word);
+                }
+                @Override public void stopped(int line, int column, String expected) {
+                    // declined below
+                }
+            });
+        } catch (Declined e) {
+            return null;
+        } catch (IOException e) {
+            throw new AssertionError("no I/O when parsing a string", e);
+        }
+        return CrosswordParser.makeBoard(header[0], header[1], entries);
+    }
+
+    /**
+     * Read a puzzle file a buffer at a time, telling listener about its header and then each entry
+     * as it is read, without checking that the puzzle is consistent.
+     * @param in the puzzle file, read to the end or to the first text outside the layout accepted
+     * @param listener told about the parts of the file read, and where reading stopped if it did
+     * @return true if all of in was read
+     * @throws IOException if in cannot be read
+     */
+    static boolean read(Reader in, Listener listener) throws IOException {
+        FastCrosswordParser parser = new FastCrosswordParser(in);
+        try {
+            parser.file(listener);
+            return true;
+        } catch (Declined e) {
+            listener.stopped(parser.line, parser.column, parser.expected);
+            return false;
+        }
+    }
+
+    // file ::= ">>" name description "\n" entry*, skipping [ \t\r] and comments in the header
+    private void file(Listener listener) throws Declined, IOException {
+        skip(false);
+        expect('>');
+        expect('>');
+        skip(false);
+        String name = quoted(false);
+        skip(false);
+        String description = quoted(true);
+        skip(false);
+        expect('\n');
+        listener.header(name, description);
+        int number = 0;
+        skip(true);
+        while (peek(0) != EOF) {
+            int entryLine = line, entryColumn = column;
+            Word word = entry(++number);
+            listener.entry(word, entryLine, entryColumn);
+            skip(true);
+        }
+        if (number == 0) {
+            // the grammar is picky about what may follow a header with no entries
+            decline("an entry");
+        }
+    }
+
+    // entry ::= "(" wordname "," clue "," direction "," row "," col ")"
+    private Word entry(int number) throws Declined, IOException {
+        expect('(');
+        skip(true);
+        String word = wordname();
+        expect(',');
+        skip(true);
+        String hint = quoted(true);
+        skip(true);
+        expect(',');
+        skip(true);
+        Board.Direction direction = direction();
+        expect(',');
+        skip(true);
+        int row = number();
+        expect(',');
+        skip(true);
+        int col = number();
+        expect(')');
+        return new Word(word, hint, number, new Position(row, col), direction);
+    }
+
+    // wordname ::= [a-z\-]+
+    private String wordname() throws Declined, IOException {
+        mark = pos;
+        for (int c = peek(0); (c >= 'a' && c <= 'z') || c == '-'; c = peek(0)) {
+            advance();
+        }
+        if (pos == mark) {
+            decline("a word of lowercase letters");
+        }
+        return marked();
+    }
+
+    // direction ::= "DOWN" | "ACROSS"
+    private Board.Direction direction() throws Declined, IOException {
+        if (lookingAt("DOWN")) {
+            return Board.Direction.DOWN;
+        } else if (lookingAt("ACROSS")) {
+            return Board.Direction.ACROSS;
+        }
+        decline("DOWN or ACROSS");
+        return null;
+    }
+
+    // int ::= [0-9]+
+    private int number() throws Declined, IOException {
+        int digits = 0;
+        int value = 0;
+        for (int c = peek(0); c >= '0' && c <= '9'; c = peek(0)) {
+            if (++digits > MAX_DIGITS) {
+                decline("a number of at most " + MAX_DIGITS + " digits");
+            }
+            value = value * 10 + (c - '0');
+            advance();
+        }
+        if (digits == 0) {
+            decline("a number");
+        }
+        return value;
+    }
+
+    /**
+     * stringIndent ::= ["][^\"\r\n\t\\]*["] if not escapes,
+     * string ::= ["]([^\"\r\n\\] | '\\' [\\nrt])*["] if escapes
+     * @return the string, with its quotes and escapes as written
+     */
+    private String quoted(boolean escapes) throws Declined, IOException {
+        mark = pos;
+        expect('"');
+        while (true) {
+            int c = peek(0);
+            if (c == '"') {
+                advance();
+                return marked();
+            } else if (c == EOF || c == '\r' || c == '\n' || (c == '\t' && !escapes)) {
+                decline("'\"' to close the string");
+            } else if (c == '\\') {
+                int escaped = peek(1);
+                if (!escapes || (escaped != '\\' && escaped != 'n' && escaped != 'r' && escaped != 't')) {
+                    decline(escapes ? "one of the escapes \\\\ \\n \\r \\t" : "no escapes in the name");
+                }
+                advance();
+                advance();
+            } else {
+                advance();
+            }
+        }
+    }
+
+    /**
+     * Skip whitespace and // comments.
+     * @param newlines true to skip newlines too
+     */
+    private void skip(boolean newlines) throws IOException {
+        while (true) {
+            int c = peek(0);
+            if (c == ' ' || c == '\t' || c == '\r' || (c == '\n' && newlines)) {
+                advance();
+            } else if (c == '/' && peek(1) == '/') {
+                for (c = peek(0); c != EOF && c != '\r' && c != '\n'; c = peek(0)) {
+                    advance();
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void expect(char c) throws Declined, IOException {
+        if (peek(0) != c) {
+            decline("'" + c + "'");
+        }
+        advance();
+    }
+
+    /** @return true, having read s, if the text continues with s, otherwise false */
+    private boolean lookingAt(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            if (peek(i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < s.length(); i++) {
+            advance();
+        }
+        return true;
+    }
+
+    private void decline(String what) throws Declined {
+        expected = what;
+        throw DECLINED;
+    }
+
+    /** @return the text from mark up to pos, clearing mark */
+    private String marked() {
+        String text = new String(buf, mark, pos - mark);
+        mark = -1;
+        return text;
+    }
+
+    /** @return the character ahead of the next one to read, or EOF if the text ends before it */
+    private int peek(int ahead) throws IOException {
+        if (pos + ahead >= limit && !fill(ahead + 1)) {
+            return EOF;
+        }
+        return buf[pos + ahead];
+    }
+
+    /** Read past the next character; requires peek(0) != EOF. */
+    private void advance() {
+        if (buf[pos++] == '\n') {
+            line++;
+            column = 1;
+        } else {
+            column++;
+        }
+    }
+
+    /**
+     * Read more of the text into buf, keeping buf[mark..] or buf[pos..].
+     * @param needed characters needed from pos
+     * @return true if buf holds at least needed characters from pos
+     */
+    private boolean fill(int needed) throws IOException {
+        if (in == null) {
+            return false;
+        }
+        while (limit - pos < needed) {
+            int keep = mark >= 0 ? mark : pos;
+            if (keep > 0) {
+                System.arraycopy(buf, keep, buf, 0, limit - keep);
+                limit -= keep;
+                pos -= keep;
+                if (mark >= 0) {
+                    mark -= keep;
+                }
+            }
+            if (limit == buf.length) {
+                buf = Arrays.copyOf(buf, 2 * buf.length);
+            }
+            int read = in.read(buf, limit, buf.length - limit);
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,109 @@
+package crossword;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in nanoseconds, recorded without locking. Buckets are log-linear, as in
+ * HdrHistogram: values below 64 have a bucket each, and every power of two above is split into 32
+ * equal buckets, so a reported percentile is within about 3% of the recorded value whatever its
+ * magnitude, with a fixed footprint of under 2000 counters.
+ */
+class LatencyHistogram {
+    // AF(counts, total, max, sum) = the multiset of recorded values, of which counts[i] fall into
+    //                               bucket i; total values were recorded, summing to sum, the largest being max
+    // RI: total == sum of counts, once concurrent record() calls have returned
+    // Thread Safety: every field is an atomic type; a snapshot taken while values are being recorded
+    //      may miss the latest of them but is otherwise consistent enough for reporting.
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT / 2;
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value a duration in nanoseconds; negative values are recorded as 0
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucketOf(v));
+        total.incrementAndGet();
+        sum.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * @return number of values recorded
+     */
+    public long count() {
+        return total.get();
+    }
+
+    /**
+     * @return largest value recorded, 0 if none
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @return mean of the values recorded, 0 if none
+     */
+    public double mean() {
+        long n = total.get();
+        return n == 0 ? 0 : (double)sum.get() / n;
+    }
+
+    /**
+     * @param fraction in [0, 1], e.g. 0.99 for the 99th percentile
+     * @return the smallest bucket bound such that at least fraction of the recorded values are
+     *         no larger, capped at max(); 0 if nothing was recorded
+     */
+    public long percentile(double fraction) {
+        long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long)Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestIn(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @param value a non-negative value
+     * @return index of the bucket holding value
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int)value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        int sub = (int)(value >>> shift);
+        return SUB_COUNT + (shift - 1) * HALF_COUNT + (sub - HALF_COUNT);
+    }
+
+    /**
+     * @param bucket index of a bucket
+     * @return largest value held by bucket
+     */
+    static long highestIn(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_COUNT) / HALF_COUNT + 1;
+        long sub = (bucket - SUB_COUNT) % HALF_COUNT + HALF_COUNT;
+        long next = (sub + 1) << shift;
+        return next <= 0 ? Long.MAX_VALUE : next - 1; // the top buckets reach past 2^63
+    }
+}
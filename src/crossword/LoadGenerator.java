@@ -0,0 +1,434 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load generator for a running server. It opens a number of client connections,
+ * STARTs a player on each, pairs them into matches with NEW and PLAY, and then has every player
+ * send a random stream of TRY and CHALLENGE requests on the puzzle at a target total rate. At the
+ * end it prints the throughput, the latency percentiles and error counts of each command as seen
+ * by the clients, followed by the server's own STATS.
+ *
+ * Latency is measured from the time a request was due to be sent, not the time it was actually
+ * sent, so a server that falls behind the target rate shows up in the percentiles instead of
+ * silently slowing the clients down. A request that gets a "bad" response, no response within
+ * REQUEST_TIMEOUT_MILLIS or a closed connection counts as an error; a player whose connection
+ * fails stops sending.
+ */
+public class LoadGenerator {
+    // AF(puzzle, puzzleName, host, port, clients, rate, durationMillis, challengeFraction, delta, seed)
+    //      = a load test against the server at host:port, by clients players in clients/2 matches on
+    //        puzzle (named puzzleName in NEW requests), sending rate requests per second in total
+    //        (as fast as they can if rate == 0) for durationMillis, a challengeFraction of them
+    //        CHALLENGEs, asking for deltas if delta, with random choices drawn from seed
+    // RI: clients is even and > 0, rate >= 0, durationMillis > 0, 0 <= challengeFraction <= 1,
+    //     puzzleName has no spaces
+    // Safety from Rep Exposure: all fields are private and final, and never returned
+    // Thread Safety: the configuration is immutable; each Player is confined to the thread running
+    //      it; latencies and errors are never modified after construction and hold threadsafe values.
+
+    /** How long a client waits for the response to a request before counting it as an error. */
+    static final int REQUEST_TIMEOUT_MILLIS = 10_000;
+    /** Commands whose latencies are reported. */
+    static final List<String> COMMANDS = List.of("START", "NEW", "PLAY", "TRY", "CHALLENGE");
+    /** Port a server listens on. */
+    private static final int DEFAULT_PORT = 4949;
+
+    private final PuzzleTemplate puzzle;
+    private final String puzzleName;
+    private final String host;
+    private final int port;
+    private final int clients;
+    private final double rate;
+    private final long durationMillis;
+    private final double challengeFraction;
+    private final boolean delta;
+    private final long seed;
+
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> errors = new LinkedHashMap<>();
+    private final AtomicReference<String> firstError = new AtomicReference<>();
+
+    /**
+     * @param puzzle puzzle every match is played on; the server must have a puzzle of the same name
+     * @param host name of the server's host
+     * @param port port the server listens on
+     * @param clients number of client connections, even and > 0
+     * @param rate requests per second sent by all clients together once matches have started,
+     *             or 0 to send each request as soon as the previous one is answered
+     * @param durationMillis how long to send moves for, > 0
+     * @param challengeFraction fraction of moves that are CHALLENGEs rather than TRYs, in [0, 1]
+     * @param delta true if clients ask for board updates as deltas (START [id] DELTA)
+     * @param seed seed of every random choice, so that a run can be replayed
+     */
+    public LoadGenerator(PuzzleTemplate puzzle, String host, int port, int clients, double rate,
+            long durationMillis, double challengeFraction, boolean delta, long seed) {
+        if (clients <= 0 || clients % 2 != 0 || rate < 0 || durationMillis <= 0
+                || challengeFraction < 0 || challengeFraction > 1) {
+            throw new IllegalArgumentException("invalid load test parameters");
+        }
+        this.puzzle = puzzle;
+        this.puzzleName = puzzle.getName().replace("\"", "");
+        if (puzzleName.contains(" ")) {
+            throw new IllegalArgumentException("puzzle name " + puzzleName + " cannot be sent in a NEW request");
+        }
+        this.host = host;
+        this.port = port;
+        this.clients = clients;
+        this.rate = rate;
+        this.durationMillis = durationMillis;
+        this.challengeFraction = challengeFraction;
+        this.delta = delta;
+        this.seed = seed;
+        for (String command : COMMANDS) {
+            latencies.put(command, new LatencyHistogram());
+            errors.put(command, new AtomicLong());
+        }
+    }
+
+    /**
+     * One simulated client: a connection and the player STARTed on it.
+     */
+    private class Player {
+        private final String id;
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+        private final Random random;
+        private String matchId = "";
+
+        /**
+         * Connect to the server and read its greeting.
+         * @param id id of the player
+         * @param random source of this player's moves
+         * @throws IOException if the server cannot be reached
+         */
+        private Player(String id, Random random) throws IOException {
+            this.id = id;
+            this.random = random;
+            this.socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+            this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), UTF_8));
+            if (in.readLine() == null) {
+                throw new IOException("server closed the connection before greeting " + id);
+            }
+        }
+
+        /**
+         * Send a request and wait for its response, skipping the lines the server pushes in the
+         * meantime (the opponent's moves, lobby updates, final scores).
+         * @param command first token of request
+         * @param request the request line
+         * @param response beginning of the response, up to the space before "ok" or "bad"
+         * @param due when the request was due to be sent, per System.nanoTime()
+         * @return true if the response was ok; false, counted as an error, if it was not or did not come
+         */
+        private boolean request(String command, String request, String response, long due) {
+            try {
+                out.write(request);
+                out.write('\n');
+                out.flush();
+                String line;
+                do {
+                    line = in.readLine();
+                    if (line == null) {
+                        throw new IOException("server closed the connection of " + id);
+                    }
+                } while (!line.startsWith(response));
+                latencies.get(command).record(System.nanoTime() - due);
+                if (line.startsWith("ok", response.length())) {
+                    return true;
+                }
+                fail(command, request + " -> " + line);
+            } catch (SocketTimeoutException e) {
+                fail(command, request + " -> no response in " + REQUEST_TIMEOUT_MILLIS + " ms");
+                close();
+            } catch (IOException e) {
+                fail(command, request + " -> " + e.getMessage());
+                close();
+            }
+            return false;
+        }
+
+        /**
+         * @return true if the player was STARTed
+         */
+        private boolean start() {
+            return request("START", "START " + id + (delta ? " DELTA" : ""), "START " + id + " ", System.nanoTime());
+        }
+
+        /**
+         * @param matchId id of a new match on the puzzle
+         * @return true if the player now hosts matchId
+         */
+        private boolean host(String matchId) {
+            this.matchId = matchId;
+            return request("NEW", "NEW " + matchId + " " + puzzleName + " " + id,
+                    "NEW " + matchId + " \"" + puzzleName + "\" " + id + " ", System.nanoTime());
+        }
+
+        /**
+         * @param matchId id of a match waiting for a second player
+         * @return true if the player joined matchId
+         */
+        private boolean join(String matchId) {
+            this.matchId = matchId;
+            return request("PLAY", "PLAY " + matchId + " " + id, "PLAY " + matchId + " " + id + " ", System.nanoTime());
+        }
+
+        /**
+         * Send random moves until end, one every interval nanoseconds, or as fast as they are
+         * answered if interval is 0, or until the connection fails.
+         * @param first when the first move is due, per System.nanoTime()
+         * @param interval nanoseconds between moves
+         * @param end when to stop, per System.nanoTime()
+         */
+        private void play(long first, long interval, long end) {
+            Word[] words = puzzle.words();
+            long due = first;
+            while (!socket.isClosed()) {
+                long now = System.nanoTime();
+                if (interval == 0) {
+                    due = now;
+                } else if (due > now) {
+                    LockSupport.parkNanos(due - now);
+                }
+                if (due >= end) {
+                    return;
+                }
+                Word word = words[random.nextInt(words.length)];
+                String guess = random.nextBoolean() ? word.getWord() : scrambled(word.getWord());
+                String command = random.nextDouble() < challengeFraction ? "CHALLENGE" : "TRY";
+                request(command, command + " " + id + " " + word.getNum() + " " + guess,
+                        command + " " + matchId + " " + id + " ", due);
+                due += interval;
+            }
+        }
+
+        /**
+         * @param answer a word of the puzzle
+         * @return a random guess of the same length and with the same punctuation
+         */
+        private String scrambled(String answer) {
+            char[] guess = answer.toCharArray();
+            for (int i = 0; i < guess.length; i++) {
+                if (Character.isLetter(guess[i])) {
+                    guess[i] = (char)('a' + random.nextInt(26));
+                }
+            }
+            return new String(guess);
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing left to send on it
+            }
+        }
+    }
+
+    /**
+     * @param command command whose request failed
+     * @param description what went wrong
+     */
+    private void fail(String command, String description) {
+        errors.get(command).incrementAndGet();
+        firstError.compareAndSet(null, description);
+    }
+
+    /**
+     * Set up the matches, play them for the configured duration and print a report to
+     * System.out.
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    public void run() throws InterruptedException {
+        ExecutorService threads = ServerHelper.newConnectionExecutor();
+        String run = Long.toString(System.currentTimeMillis() % 1_000_000_000L, 36);
+        List<Future<List<Player>>> setups = new ArrayList<>();
+        for (int pair = 0; pair < clients / 2; pair++) {
+            int index = pair;
+            setups.add(threads.submit(() -> setUp(run, index)));
+        }
+        List<Player> players = new ArrayList<>();
+        int failedPairs = 0;
+        for (Future<List<Player>> setup : setups) {
+            List<Player> pair = await(setup);
+            if (pair.isEmpty()) {
+                failedPairs++;
+            }
+            players.addAll(pair);
+        }
+
+        long interval = rate == 0 ? 0 : (long)(players.size() * 1e9 / rate);
+        long start = System.nanoTime();
+        long end = start + durationMillis * 1_000_000;
+        long before = latencies.get("TRY").count() + latencies.get("CHALLENGE").count();
+        List<Future<?>> games = new ArrayList<>();
+        for (Player player : players) {
+            long first = start + (interval == 0 ? 0 : (long)(player.random.nextDouble() * interval));
+            games.add(threads.submit(() -> player.play(first, interval, end)));
+        }
+        for (Future<?> game : games) {
+            await(game);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long moves = latencies.get("TRY").count() + latencies.get("CHALLENGE").count() - before;
+        players.forEach(Player::close);
+        threads.shutdown();
+
+        System.out.println(String.format("clients=%d matches=%d failed-matches=%d duration=%.1fs target=%s achieved=%.0f moves/s",
+                clients, players.size() / 2, failedPairs, seconds, rate == 0 ? "max" : String.format("%.0f/s", rate), moves / seconds));
+        System.out.println(String.format("%-10s %10s %8s %10s %10s %10s %10s", "command", "n", "errors", "p50 us", "p99 us", "p999 us", "max us"));
+        for (String command : COMMANDS) {
+            LatencyHistogram histogram = latencies.get(command);
+            System.out.println(String.format("%-10s %10d %8d %10d %10d %10d %10d", command, histogram.count(), errors.get(command).get(),
+                    histogram.percentile(0.5) / 1000, histogram.percentile(0.99) / 1000,
+                    histogram.percentile(0.999) / 1000, histogram.max() / 1000));
+        }
+        if (firstError.get() != null) {
+            System.out.println("first error: " + firstError.get());
+        }
+        System.out.println("server: " + serverStats());
+    }
+
+    /**
+     * Connect two players, START them and have the first host a match that the second joins.
+     * @param run prefix that makes ids unique across runs against the same server
+     * @param pair index of the pair
+     * @return the two players, host first, or an empty list if the match could not be set up
+     */
+    private List<Player> setUp(String run, int pair) {
+        Random random = new Random(seed + pair);
+        Player host;
+        Player joiner;
+        try {
+            host = new Player("load" + run + "h" + pair, new Random(random.nextLong()));
+        } catch (IOException e) {
+            fail("START", "cannot connect: " + e.getMessage());
+            return List.of();
+        }
+        try {
+            joiner = new Player("load" + run + "j" + pair, new Random(random.nextLong()));
+        } catch (IOException e) {
+            fail("START", "cannot connect: " + e.getMessage());
+            host.close();
+            return List.of();
+        }
+        String matchId = "load" + run + "m" + pair;
+        if (host.start() && joiner.start() && host.host(matchId) && joiner.join(matchId)) {
+            return List.of(host, joiner);
+        }
+        host.close();
+        joiner.close();
+        return List.of();
+    }
+
+    /**
+     * @return the server's response to STATS, or why it could not be had
+     */
+    private String serverStats() {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), UTF_8);
+            in.readLine();
+            out.write("STATS\n");
+            out.flush();
+            String line = in.readLine();
+            return line == null ? "no response to STATS" : line;
+        } catch (IOException e) {
+            return "cannot read STATS: " + e.getMessage();
+        }
+    }
+
+    /**
+     * @param future a task that does not throw
+     * @return its result
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static <T> T await(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("load test client failed", e.getCause());
+        }
+    }
+
+    /**
+     * Run a load test against a server.
+     * @param args the puzzle file the matches are played on, which the server must have loaded,
+     *             optionally followed by "--host H" (default localhost), "--port P" (default 4949),
+     *             "--clients N" (default 100, even), "--rate R" total moves per second
+     *             (default 0, as fast as the server answers), "--duration S" seconds of play
+     *             (default 10), "--challenge F" fraction of moves that are CHALLENGEs (default 0.2),
+     *             "--delta" to ask for board updates as deltas and "--seed S" to replay a run
+     * @throws Exception if the puzzle cannot be read or the test is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        final Queue<String> arguments = new LinkedList<>(Arrays.asList(args));
+        final String puzzleFile = arguments.remove();
+        String host = "localhost";
+        int port = DEFAULT_PORT;
+        int clients = 100;
+        double rate = 0;
+        double seconds = 10;
+        double challengeFraction = 0.2;
+        boolean delta = false;
+        long seed = 0;
+        while (!arguments.isEmpty()) {
+            String flag = arguments.remove();
+            if (flag.equals("--delta")) {
+                delta = true;
+            } else if (arguments.isEmpty()) {
+                throw new IllegalArgumentException("missing value for " + flag);
+            } else if (flag.equals("--host")) {
+                host = arguments.remove();
+            } else if (flag.equals("--port")) {
+                port = Integer.parseInt(arguments.remove());
+            } else if (flag.equals("--clients")) {
+                clients = Integer.parseInt(arguments.remove());
+            } else if (flag.equals("--rate")) {
+                rate = Double.parseDouble(arguments.remove());
+            } else if (flag.equals("--duration")) {
+                seconds = Double.parseDouble(arguments.remove());
+            } else if (flag.equals("--challenge")) {
+                challengeFraction = Double.parseDouble(arguments.remove());
+            } else if (flag.equals("--seed")) {
+                seed = Long.parseLong(arguments.remove());
+            } else {
+                throw new IllegalArgumentException("unknown flag " + flag);
+            }
+        }
+        Board board = (Board)CrosswordParser.parse(Files.readString(Paths.get(puzzleFile)));
+        new LoadGenerator(board.getTemplate(), host, port, clients, rate, (long)(seconds * 1000),
+                challengeFraction, delta, seed).run();
+    }
+}
@@ -0,0 +1,144 @@
+package crossword;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What players choosing a match see: the matches waiting for a second player and the puzzles
+ * a new match can be played on. Every change bumps a version; the lobby is rendered at most
+ * once per version and pushed to the players currently in it, with the changes of a short
+ * burst coalesced into a single push.
+ */
+class Lobby {
+    // AF(openMatches, puzzles, version, subscribers) = the lobby listing openMatches and puzzles,
+    //                             at its version-th change, watched by the players in subscribers
+    // RI: snapshot.version <= version
+    //     puzzles is "->" before each name in puzzleNames, as of the last call to puzzlesChanged
+    // Thread Safety: openMatches and puzzleNames are live views of threadsafe maps, and puzzles is
+    //      volatile and immutable. version, subscribers and
+    //      publishScheduled are threadsafe; snapshot is volatile and immutable, and replacing a
+    //      newer snapshot by an older one only costs an extra rendering. A push to a session and
+    //      the session leaving the lobby are both done while holding the session's lock, so a
+    //      player never receives the lobby after the response that took it out of the lobby.
+
+    /** How long a change waits for others to join it before subscribers are told. */
+    private static final long COALESCE_MILLIS = 20;
+
+    private final Collection<String> openMatches;
+    private final Collection<String> puzzleNames;
+    private volatile String puzzles;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private final Set<Session> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean publishScheduled = new AtomicBoolean(false);
+    private final ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "crossword-lobby");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The lobby as rendered at one version. */
+    private static class Snapshot {
+        private final long version;
+        private final String text;
+
+        private Snapshot(long version, String text) {
+            this.version = version;
+            this.text = text;
+        }
+    }
+
+    /**
+     * @param openMatches live view of the ids of the matches waiting for a second player
+     * @param puzzleNames live view of the names of the puzzles, which change rarely
+     */
+    public Lobby(Collection<String> openMatches, Collection<String> puzzleNames) {
+        this.openMatches = openMatches;
+        this.puzzleNames = puzzleNames;
+        this.puzzles = renderPuzzles();
+        this.snapshot = render(0);
+    }
+
+    private String renderPuzzles() {
+        StringBuilder puzzles = new StringBuilder();
+        for (String name : puzzleNames) {
+            puzzles.append("->").append(name);
+        }
+        return puzzles.toString();
+    }
+
+    /**
+     * @return the lobby as the client protocol sends it after "ok":
+     *         "-->" then "->" before each open match, then "-->" then "->" before each puzzle
+     */
+    public String snapshot() {
+        Snapshot current = snapshot;
+        long now = version.get();
+        if (current.version != now) {
+            current = render(now);
+            snapshot = current;
+        }
+        return current.text;
+    }
+
+    private Snapshot render(long at) {
+        StringBuilder text = new StringBuilder("-->");
+        for (String matchId : openMatches) {
+            text.append("->").append(matchId);
+        }
+        return new Snapshot(at, text.append("-->").append(puzzles).toString());
+    }
+
+    /**
+     * Record that the open matches have changed, and push the new lobby to its players soon.
+     */
+    public void changed() {
+        version.incrementAndGet();
+        if (publishScheduled.compareAndSet(false, true)) {
+            publisher.schedule(this::publish, COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Record that the puzzles have changed, and push the new lobby to its players soon.
+     */
+    public void puzzlesChanged() {
+        puzzles = renderPuzzles();
+        changed();
+    }
+
+    private void publish() {
+        publishScheduled.set(false);
+        String text = snapshot();
+        for (Session session : subscribers) {
+            synchronized (session) {
+                if (subscribers.contains(session)) {
+                    session.getConnection().send("START " + session.getPlayerId() + " ok" + text);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param session a player who is choosing a match from now on
+     */
+    public void subscribe(Session session) {
+        subscribers.add(session);
+    }
+
+    /**
+     * @param session a player who has entered a match or gone away; returns only once any
+     *        push to it in progress has been queued
+     */
+    public void unsubscribe(Session session) {
+        synchronized (session) {
+            subscribers.remove(session);
+        }
+    }
+}
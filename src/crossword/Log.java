@@ -0,0 +1,120 @@
+package crossword;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Leveled logger for the server. A message below the logger's level costs one comparison; one
+ * at or above it is formatted on the calling thread and written by an AsyncAppender, so logging
+ * never makes a request wait for the console.
+ *
+ * Levels are read once, when a logger is made, from system properties:
+ *     -Dcrossword.log.level=LEVEL     default level of every logger
+ *     -Dcrossword.log.NAME=LEVEL      level of the logger called NAME
+ * where LEVEL is one of DEBUG, INFO, WARN, ERROR, OFF. Every request line is logged at DEBUG
+ * by the "requests" logger, which is OFF unless configured, e.g. -Dcrossword.log.requests=DEBUG.
+ */
+final class Log {
+    // AF(name, level, appender) = the logger called name, writing the messages at level or above to appender
+    // RI: true
+    // Thread Safety: immutable; appender is threadsafe.
+
+    /** Importance of a message, and the least important one a logger writes. */
+    enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final int CONSOLE_BUFFER_LINES = 8192;
+    private static final long SHUTDOWN_FLUSH_MILLIS = 1000;
+    private static final AsyncAppender CONSOLE = new AsyncAppender(System.err, CONSOLE_BUFFER_LINES);
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> CONSOLE.flush(SHUTDOWN_FLUSH_MILLIS)));
+    }
+
+    private final String name;
+    private final Level level;
+    private final AsyncAppender appender;
+
+    /**
+     * @param name name printed with every message
+     * @param level least important level written
+     * @param appender where messages are written
+     */
+    Log(String name, Level level, AsyncAppender appender) {
+        this.name = name;
+        this.level = level;
+        this.appender = appender;
+    }
+
+    /**
+     * @param name name of the logger, as used in its system property
+     * @return a logger writing to standard error at its configured level, INFO if not configured
+     */
+    static Log named(String name) {
+        return named(name, Level.INFO);
+    }
+
+    /**
+     * @param name name of the logger, as used in its system property
+     * @param fallback level used if neither the logger's nor the default property is set
+     * @return a logger writing to standard error at its configured level
+     */
+    static Log named(String name, Level fallback) {
+        String configured = System.getProperty("crossword.log." + name, System.getProperty("crossword.log.level"));
+        Level level = fallback;
+        if (configured != null) {
+            try {
+                level = Level.valueOf(configured.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("unknown log level " + configured + " for " + name + ", using " + fallback);
+            }
+        }
+        return new Log(name, level, CONSOLE);
+    }
+
+    /**
+     * @param at a level other than OFF
+     * @return true if messages at level at are written; callers building an expensive message
+     *         should check this first
+     */
+    boolean isEnabled(Level at) {
+        return at.compareTo(level) >= 0;
+    }
+
+    void debug(String message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    void info(String message) {
+        log(Level.INFO, message, null);
+    }
+
+    void warn(String message) {
+        log(Level.WARN, message, null);
+    }
+
+    void warn(String message, Throwable thrown) {
+        log(Level.WARN, message, thrown);
+    }
+
+    void error(String message, Throwable thrown) {
+        log(Level.ERROR, message, thrown);
+    }
+
+    /**
+     * Write a message if its level is enabled.
+     * @param at level of the message, other than OFF
+     * @param message the message
+     * @param thrown exception whose stack trace follows the message, or null
+     */
+    void log(Level at, String message, Throwable thrown) {
+        if (!isEnabled(at)) {
+            return;
+        }
+        StringBuilder line = new StringBuilder(at.name()).append(' ').append(name).append(": ").append(message);
+        if (thrown != null) {
+            StringWriter trace = new StringWriter();
+            thrown.printStackTrace(new PrintWriter(trace));
+            line.append(System.lineSeparator()).append(trace.toString().stripTrailing());
+        }
+        appender.append(line.toString());
+    }
+}
@@ -0,0 +1,109 @@
+package crossword;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * The single-threaded mailbox of one match. Every read or move on the match's Board is
+ * posted to the mailbox and run one at a time, in arrival order, on a shared executor, so
+ * the Board needs no locking and no thread is dedicated to an idle match.
+ *
+ * The server uses the mailbox synchronously: a request thread posts its move with call() and
+ * blocks until the move has run, then writes the reply itself. This is a handoff, not
+ * asynchronous messaging. It keeps replies in request order on each connection without any
+ * further bookkeeping, but a request thread is held for as long as its move waits behind the
+ * match's earlier moves. Throughput is therefore bounded by the number of request threads, not
+ * by the number of matches. In SELECTOR mode there are only as many workers as cores, so at
+ * most that many moves are in progress at once, however many matches are being played. Sending
+ * the reply from the mailbox task instead (with submit()) would lift that bound, at the cost of
+ * ordering the replies of each connection explicitly.
+ */
+class MatchMailbox {
+    // AF(matchId, board, moves, players) = the match matchId being played on board by players, whose
+    //                             pending operations are queued in moves
+    // RI: players.size() <= 2, players has no duplicates
+    // Thread Safety: board is confined to moves, which runs at most one task at a time and publishes
+    //      each task's effects to the next (SerialExecutor hands over under a lock). players is a
+    //      threadsafe list. Callers receive only values computed inside the mailbox, never the board.
+
+    private final String matchId;
+    private final Board board;
+    private final SerialExecutor moves;
+    private final List<String> players = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param matchId id of this match
+     * @param board the board of this match, must not be used by anyone else afterwards
+     * @param executor the shared executor that mailbox tasks run on
+     */
+    public MatchMailbox(String matchId, Board board, Executor executor) {
+        this.matchId = matchId;
+        this.board = board;
+        this.moves = new SerialExecutor(executor);
+    }
+
+    /**
+     * @return id of this match
+     */
+    public String getMatchId() {
+        return matchId;
+    }
+
+    /**
+     * Post an operation on the board to the mailbox.
+     * @param operation function run against the board once all earlier operations have finished
+     * @return future completed with the value of operation
+     */
+    public <T> CompletableFuture<T> submit(Function<Board, T> operation) {
+        return CompletableFuture.supplyAsync(() -> operation.apply(board), moves);
+    }
+
+    /**
+     * Post an operation on the board to the mailbox and wait for its result, blocking the
+     * calling thread meanwhile (see the class comment).
+     * @param operation function run against the board once all earlier operations have finished
+     * @return the value of operation
+     */
+    public <T> T call(Function<Board, T> operation) {
+        try {
+            return submit(operation).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Adds a player to the match and to its board.
+     * @param playerId the id to be added
+     */
+    public void addPlayer(String playerId) {
+        players.add(playerId);
+        call(board -> {
+            board.addPlayer(playerId);
+            return null;
+        });
+    }
+
+    /**
+     * @return id of the player who created this match, or null if nobody has been added yet
+     */
+    public String getHostId() {
+        return players.isEmpty() ? null : players.get(0);
+    }
+
+    /**
+     * @return the ids of the players in this match
+     */
+    public Set<String> getPlayerIds() {
+        return new HashSet<>(players);
+    }
+}
@@ -54,7 +54,9 @@ public class Position {
     
     @Override
     public int hashCode() {
-        return this.getRow() + this.getCol();
+        // row + col would collide along every anti-diagonal; the large odd multiplier keeps
+        // positions of any grid narrower than it distinct
+        return 92821 * this.getRow() + this.getCol();
     }
     
     @Override
@@ -0,0 +1,248 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The puzzles a server offers, indexed by name. A catalog scanned from a folder reads only the
+ * header line of each puzzle file at startup (and one opened from a puzzle pack only the pack's
+ * index, see PuzzlePack); the whole puzzle is parsed the first time a match is played on it, and
+ * the parsed templates are kept in a cache that holds at most capacity of them, evicting the least
+ * recently used. Startup time and heap therefore grow with the number
+ * of puzzles in play, not with the size of the catalog. A puzzle found to be invalid when it is
+ * parsed is dropped from the catalog.
+ */
+class PuzzleCatalog {
+    // AF(entries, cache, capacity) = the puzzles named by entries.keySet(); the puzzle named n is
+    //          described by entries.get(n).description and is the template entries.get(n).pinned if
+    //          there is one, otherwise the one entries.get(n).loader makes from entries.get(n).source,
+    //          of which those in cache have been made already
+    // RI: every entry has a pinned template or a loader, not both
+    //     cache.keySet() is a subset of the names of entries with a loader, cache.size() <= capacity
+    // Safety from Rep Exposure: names() is an unmodifiable view; templates are immutable
+    // Thread Safety: entries is a threadsafe map of immutable entries; cache is guarded by its own
+    //      lock, which is not held while a puzzle is loaded, so two matches starting on the
+    //      same uncached puzzle at once may both parse it, and one of the results is kept.
+
+    /** Templates kept in the cache by default. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Header line of a puzzle file: ">>", the quoted name, the quoted description. */
+    private static final Pattern HEADER = Pattern.compile(
+            "[ \\t\\r]*>>[ \\t\\r]*(\"[^\"\\r\\n\\t\\\\]*\")[ \\t\\r]*(\"(?:[^\"\\r\\n\\\\]|\\\\[\\\\nrt])*\").*");
+    private static final Log LOG = Log.named("server");
+
+    /**
+     * Told how long each puzzle took to load: to read and parse it, or to decode it from a pack.
+     */
+    interface ParseListener {
+        /**
+         * @param nanos time taken to load one puzzle
+         * @param failed true if the puzzle was invalid
+         */
+        void parsed(long nanos, boolean failed);
+    }
+
+    /** What the catalog knows about one puzzle. */
+    private static class Entry {
+        private final String description;
+        private final String source;
+        private final Callable<PuzzleTemplate> loader;
+        private final PuzzleTemplate pinned;
+
+        private Entry(String description, String source, Callable<PuzzleTemplate> loader, PuzzleTemplate pinned) {
+            this.description = description;
+            this.source = source;
+            this.loader = loader;
+            this.pinned = pinned;
+        }
+    }
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, PuzzleTemplate> cache;
+    private final int capacity;
+    private volatile ParseListener listener = (nanos, failed) -> { };
+
+    /**
+     * Make an empty catalog.
+     * @param capacity most parsed templates kept at once, > 0
+     */
+    public PuzzleCatalog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<String, PuzzleTemplate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PuzzleTemplate> eldest) {
+                return size() > PuzzleCatalog.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Make a catalog of the .puzzle files in a folder, reading only their header lines. Files
+     * whose header cannot be read, and files naming a puzzle already found, are logged and skipped.
+     * @param folder folder holding the puzzle files
+     * @param capacity most parsed templates kept at once, > 0
+     * @return the catalog
+     * @throws IOException if the folder cannot be listed
+     */
+    public static PuzzleCatalog scan(Path folder, int capacity) throws IOException {
+        PuzzleCatalog catalog = new PuzzleCatalog(capacity);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*.puzzle")) {
+            for (Path file : files) {
+                try {
+                    catalog.addFile(file);
+                } catch (IOException | IllegalArgumentException e) {
+                    LOG.warn("skipping puzzle file " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Add the puzzle of a file to the catalog, to be parsed when first asked for.
+     * @param file a puzzle file
+     * @throws IOException if file cannot be read
+     * @throws IllegalArgumentException if file does not start with a puzzle header, or names a
+     *         puzzle already in the catalog
+     */
+    public void addFile(Path file) throws IOException {
+        String header;
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            header = reader.readLine();
+        }
+        Matcher matcher = HEADER.matcher(header == null ? "" : header);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("no puzzle header");
+        }
+        add(matcher.group(1), matcher.group(2), file.toString(),
+                () -> PuzzleLoader.parse(Files.readString(file, UTF_8)));
+    }
+
+    /**
+     * Add a parsed puzzle to the catalog. It is never evicted.
+     * @param template a valid puzzle
+     * @throws IllegalArgumentException if a puzzle of the same name is already in the catalog
+     */
+    public void add(PuzzleTemplate template) {
+        add(template.getName(), new Entry(template.getDescription(), "memory", null, template));
+    }
+
+    /**
+     * Add a puzzle to the catalog, to be loaded when first asked for.
+     * @param name name of the puzzle, quoted as in its file
+     * @param description description of the puzzle, quoted as in its file
+     * @param source where the puzzle is loaded from, for messages
+     * @param loader makes the puzzle, throwing if it is invalid
+     * @throws IllegalArgumentException if a puzzle of the same name is already in the catalog
+     */
+    void add(String name, String description, String source, Callable<PuzzleTemplate> loader) {
+        add(name, new Entry(description, source, loader, null));
+    }
+
+    private void add(String name, Entry entry) {
+        if (entries.putIfAbsent(name, entry) != null) {
+            throw new IllegalArgumentException("duplicate puzzle " + name);
+        }
+    }
+
+    /**
+     * @param listener told about every puzzle parsed from now on
+     */
+    public void setParseListener(ParseListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return live, unmodifiable view of the names of the puzzles, quoted as in their files
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * @param name a puzzle name, quoted as in its file
+     * @return true if the catalog has a puzzle called name (which may still turn out to be invalid)
+     */
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * @param name a puzzle name, quoted as in its file
+     * @return the description of the puzzle called name, or null if there is none
+     */
+    public String description(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? null : entry.description;
+    }
+
+    /**
+     * Get a puzzle, loading it if it is not cached. A puzzle that cannot be loaded or is invalid
+     * is logged and removed from the catalog.
+     * @param name a puzzle name, quoted as in its file
+     * @return the puzzle called name, or null if there is none or it is invalid
+     */
+    public PuzzleTemplate template(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        } else if (entry.pinned != null) {
+            return entry.pinned;
+        }
+        synchronized (cache) {
+            PuzzleTemplate cached = cache.get(name);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long start = System.nanoTime();
+        PuzzleTemplate template;
+        try {
+            template = entry.loader.call();
+        } catch (Exception e) {
+            listener.parsed(System.nanoTime() - start, true);
+            LOG.warn("dropping puzzle " + name + " from " + entry.source + ": " + e);
+            entries.remove(name, entry);
+            return null;
+        }
+        listener.parsed(System.nanoTime() - start, false);
+        synchronized (cache) {
+            PuzzleTemplate raced = cache.putIfAbsent(name, template);
+            return raced == null ? template : raced;
+        }
+    }
+
+    /**
+     * @return number of puzzles in the catalog
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of parsed templates currently cached
+     */
+    public int cached() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+/**
+ * Reads, parses and validates many puzzles at once, spread across the cores by a parallel
+ * stream, and reports how long each took and which failed.
+ */
+class PuzzleLoader {
+
+    /** Slowest puzzles named in a report's summary. */
+    private static final int SLOWEST_REPORTED = 5;
+    private static final Log LOG = Log.named("server");
+
+    private PuzzleLoader() {
+        // not meant to be instantiated
+    }
+
+    /**
+     * Outcome of loading one puzzle.
+     */
+    static class Result {
+        // AF(source, template, error, nanos) = the puzzle read from source in nanos, which is
+        //                                      template if it is valid, otherwise invalid for reason error
+        // RI: exactly one of template and error is null
+        private final String source;
+        private final PuzzleTemplate template;
+        private final String error;
+        private final long nanos;
+
+        private Result(String source, PuzzleTemplate template, String error, long nanos) {
+            this.source = source;
+            this.template = template;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        /** @return the file the puzzle was read from, or the first line of its text */
+        public String getSource() {
+            return source;
+        }
+
+        /** @return the puzzle, or null if it is invalid */
+        public PuzzleTemplate getTemplate() {
+            return template;
+        }
+
+        /** @return why the puzzle is invalid, or null if it is valid */
+        public String getError() {
+            return error;
+        }
+
+        /** @return time taken to read, parse and validate the puzzle */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    /**
+     * Outcome of loading a set of puzzles: the valid ones, the invalid ones and the timings.
+     */
+    static class Report {
+        // AF(results, wallNanos) = the puzzles of results, loaded together in wallNanos
+        // RI: results is unmodifiable; no two results with a template have a template of the same name
+        private final List<Result> results;
+        private final long wallNanos;
+
+        private Report(List<Result> results, long wallNanos) {
+            this.results = Collections.unmodifiableList(results);
+            this.wallNanos = wallNanos;
+        }
+
+        /** @return the outcome for each puzzle, in the order the puzzles were given */
+        public List<Result> getResults() {
+            return results;
+        }
+
+        /** @return the valid puzzles, in the order they were given */
+        public List<PuzzleTemplate> getTemplates() {
+            return results.stream().map(Result::getTemplate).filter(t -> t != null).collect(Collectors.toList());
+        }
+
+        /**
+         * @param capacity capacity of the catalog's cache, for puzzles added to it later
+         * @return a catalog holding the valid puzzles, parsed already
+         */
+        public PuzzleCatalog toCatalog(int capacity) {
+            PuzzleCatalog catalog = new PuzzleCatalog(capacity);
+            getTemplates().forEach(catalog::add);
+            return catalog;
+        }
+
+        /**
+         * @param listener told about the time taken by every puzzle, in the order given
+         */
+        public void recordTo(PuzzleCatalog.ParseListener listener) {
+            for (Result result : results) {
+                listener.parsed(result.nanos, result.template == null);
+            }
+        }
+
+        /**
+         * @return one line with the counts, the total and elapsed times and the slowest puzzles,
+         *         then one line for each invalid puzzle
+         */
+        public String summary() {
+            long failed = results.stream().filter(r -> r.template == null).count();
+            long cpuNanos = results.stream().mapToLong(Result::getNanos).sum();
+            StringBuilder summary = new StringBuilder()
+                    .append("loaded ").append(results.size() - failed).append(" of ").append(results.size())
+                    .append(" puzzles in ").append(wallNanos / 1_000_000).append(" ms (")
+                    .append(cpuNanos / 1_000_000).append(" ms of parsing");
+            List<Result> slowest = results.stream()
+                    .sorted(Comparator.comparingLong(Result::getNanos).reversed())
+                    .limit(SLOWEST_REPORTED).collect(Collectors.toList());
+            for (int i = 0; i < slowest.size(); i++) {
+                summary.append(i == 0 ? "; slowest " : ", ").append(slowest.get(i).source)
+                       .append(' ').append(slowest.get(i).nanos / 1_000_000).append(" ms");
+            }
+            summary.append(')');
+            for (Result result : results) {
+                if (result.template == null) {
+                    summary.append("\n  ").append(result.source).append(": ").append(result.error);
+                }
+            }
+            return summary.toString();
+        }
+
+        /**
+         * Log the summary, as a warning if any puzzle is invalid, and each puzzle's time at DEBUG.
+         */
+        public void log() {
+            if (LOG.isEnabled(Log.Level.DEBUG)) {
+                for (Result result : results) {
+                    LOG.debug("loaded " + result.source + " in " + result.nanos / 1000 + " us");
+                }
+            }
+            if (results.stream().anyMatch(r -> r.template == null)) {
+                LOG.warn(summary());
+            } else {
+                LOG.info(summary());
+            }
+        }
+    }
+
+    /**
+     * Parse and validate one puzzle.
+     * @param text the text of a puzzle file
+     * @return the puzzle
+     * @throws UnableToParseException if text does not follow the grammar
+     * @throws IllegalArgumentException if the puzzle is not consistent or its grid is too large
+     */
+    static PuzzleTemplate parse(String text) throws UnableToParseException {
+        return ((Board)CrosswordParser.parse(text)).getTemplate();
+    }
+
+    /**
+     * Load every .puzzle file of a folder, in parallel.
+     * @param folder folder holding the puzzle files
+     * @return the report, with the files in name order
+     * @throws IOException if the folder cannot be listed
+     */
+    public static Report loadFolder(Path folder) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.puzzle")) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+        List<Source> sources = new ArrayList<>();
+        for (Path file : files) {
+            sources.add(new Source(file.toString(), () -> Files.readString(file, UTF_8)));
+        }
+        return load(sources);
+    }
+
+    /**
+     * Load puzzles from their texts, in parallel.
+     * @param texts the texts of puzzle files
+     * @return the report, with the puzzles in the order of texts
+     */
+    public static Report loadTexts(Collection<String> texts) {
+        List<Source> sources = new ArrayList<>();
+        for (String text : texts) {
+            sources.add(new Source(text.strip().lines().findFirst().orElse(""), () -> text));
+        }
+        return load(sources);
+    }
+
+    /** Where a puzzle comes from: a name for reports, and how to read its text. */
+    private static class Source {
+        private final String name;
+        private final Callable<String> text;
+
+        private Source(String name, Callable<String> text) {
+            this.name = name;
+            this.text = text;
+        }
+    }
+
+    private static Report load(List<Source> sources) {
+        long start = System.nanoTime();
+        List<Result> results = sources.parallelStream().map(PuzzleLoader::load).collect(Collectors.toList());
+        // a name taken by an earlier puzzle makes a later one invalid, as the server could not tell them apart
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            if (result.template == null) {
+                continue;
+            } else if (!names.add(result.template.getName())) {
+                results.set(i, new Result(result.source, null, "duplicate puzzle " + result.template.getName(), result.nanos));
+            }
+        }
+        return new Report(results, System.nanoTime() - start);
+    }
+
+    private static Result load(Source source) {
+        long start = System.nanoTime();
+        try {
+            PuzzleTemplate template = parse(source.text.call());
+            return new Result(source.name, template, null, System.nanoTime() - start);
+        } catch (Exception e) {
+            String error = e.getMessage() == null ? e.toString() : e.getMessage().strip().lines().findFirst().orElse("");
+            return new Result(source.name, null, error, System.nanoTime() - start);
+        }
+    }
+}
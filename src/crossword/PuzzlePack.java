@@ -0,0 +1,190 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import crossword.Board.Direction;
+
+/**
+ * A puzzle pack: the valid puzzles of a folder compiled into one binary file, which a server
+ * memory-maps instead of parsing the puzzle files. Opening a pack reads only its index; a puzzle's
+ * words are decoded from the mapped file the first time a match is played on it, so a server with
+ * a huge catalog starts in milliseconds and pages in only the puzzles being played.
+ *
+ * The format, all integers big-endian:
+ *      pack   ::= MAGIC VERSION count:int index[count] record[count]
+ *      index  ::= name:string description:string offset:int
+ *      record ::= words:int word[words]
+ *      word   ::= number:int direction:byte row:int col:int text:string hint:string
+ *      string ::= length:int utf8-bytes[length]
+ * where offset is the position of the puzzle's record from the start of the file, and direction
+ * is 0 for ACROSS and 1 for DOWN.
+ */
+class PuzzlePack {
+
+    /** First bytes of every pack, "XWPK". */
+    static final int MAGIC = 0x5857504B;
+    /** Version of the format written by compile. */
+    static final int VERSION = 1;
+
+    private PuzzlePack() {
+        // not meant to be instantiated
+    }
+
+    /**
+     * Parse and validate the puzzles of a folder, in parallel, and write the valid ones to a pack.
+     * @param folder folder holding the .puzzle files
+     * @param pack file to write, replaced if it exists
+     * @return the report of loading the folder, listing the puzzles left out
+     * @throws IOException if the folder cannot be read or the pack cannot be written
+     */
+    public static PuzzleLoader.Report compile(Path folder, Path pack) throws IOException {
+        PuzzleLoader.Report report = PuzzleLoader.loadFolder(folder);
+        List<PuzzleTemplate> templates = report.getTemplates();
+        List<byte[]> records = new ArrayList<>();
+        int indexBytes = 3 * Integer.BYTES;
+        for (PuzzleTemplate template : templates) {
+            records.add(record(template));
+            indexBytes += utf8(template.getName()).length + utf8(template.getDescription()).length + 3 * Integer.BYTES;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(pack)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(templates.size());
+            long offset = indexBytes;
+            for (int i = 0; i < templates.size(); i++) {
+                if (offset > Integer.MAX_VALUE) {
+                    throw new IOException("pack would be larger than 2 GB");
+                }
+                writeString(out, templates.get(i).getName());
+                writeString(out, templates.get(i).getDescription());
+                out.writeInt((int)offset);
+                offset += records.get(i).length;
+            }
+            for (byte[] record : records) {
+                out.write(record);
+            }
+        }
+        return report;
+    }
+
+    private static byte[] record(PuzzleTemplate template) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        Word[] words = template.words();
+        out.writeInt(words.length);
+        for (Word word : words) {
+            out.writeInt(word.getNum());
+            out.writeByte(word.getDir() == Direction.DOWN ? 1 : 0);
+            out.writeInt(word.getRow());
+            out.writeInt(word.getCol());
+            writeString(out, word.getWord());
+            writeString(out, word.getHint());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] utf8(String string) {
+        return string.getBytes(UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = utf8(string);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Map a pack into memory and make a catalog of its puzzles, reading only its index.
+     * @param pack a file written by compile
+     * @param capacity most decoded templates the catalog keeps at once, > 0
+     * @return the catalog
+     * @throws IOException if pack cannot be read or is not a pack
+     */
+    public static PuzzleCatalog open(Path pack, int capacity) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(pack, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(pack + " is larger than 2 GB");
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        PuzzleCatalog catalog = new PuzzleCatalog(capacity);
+        try {
+            ByteBuffer index = mapped.duplicate();
+            if (index.getInt() != MAGIC || index.getInt() != VERSION) {
+                throw new IOException(pack + " is not a version " + VERSION + " puzzle pack");
+            }
+            int count = index.getInt();
+            for (int i = 0; i < count; i++) {
+                String name = readString(index);
+                String description = readString(index);
+                int offset = index.getInt();
+                catalog.add(name, description, pack + "@" + offset, () -> template(mapped, offset, name, description));
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException(pack + " is corrupt", e);
+        }
+        return catalog;
+    }
+
+    /**
+     * @param mapped the mapped pack, not modified
+     * @param offset position of the puzzle's record
+     * @param name name of the puzzle
+     * @param description description of the puzzle
+     * @return the puzzle decoded from its record
+     * @throws IllegalArgumentException if the puzzle is inconsistent
+     * @throws java.nio.BufferUnderflowException if the record is corrupt
+     */
+    private static PuzzleTemplate template(ByteBuffer mapped, int offset, String name, String description) {
+        ByteBuffer record = mapped.duplicate();
+        record.position(offset);
+        int count = record.getInt();
+        List<Word> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int number = record.getInt();
+            Direction dir = record.get() == 1 ? Direction.DOWN : Direction.ACROSS;
+            int row = record.getInt();
+            int col = record.getInt();
+            String text = readString(record);
+            String hint = readString(record);
+            words.add(new Word(text, hint, number, new Position(row, col), dir));
+        }
+        return new PuzzleTemplate(name, description, words);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Compile a folder of puzzles into a pack, printing which puzzles were left out.
+     * @param args the folder of .puzzle files, then the pack file to write
+     * @throws IOException if the folder cannot be read or the pack cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("usage: PuzzlePack puzzle-folder pack-file");
+        }
+        PuzzleLoader.Report report = compile(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println(report.summary());
+        System.out.println("wrote " + report.getTemplates().size() + " puzzles to " + args[1]);
+    }
+}
@@ -0,0 +1,299 @@
+package crossword;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import crossword.Board.Direction;
+
+/**
+ * Immutable description of a parsed, consistent crossword puzzle: its words, layout and the
+ * indices and client strings that never change during a match. A puzzle is parsed and checked
+ * once; every match on it gets a fresh Board from newBoard(), which shares all of this and only
+ * allocates the state that changes as the match is played.
+ */
+public class PuzzleTemplate {
+    /*
+     * AF(name, description, words, rows, cols) = the rows x cols crossword puzzle called name, with theme description,
+     *      whose entries are words. answers and hints map a word number to its word and hint. solution[i] is the
+     *      answer letter of cell i (= row * cols + col), or EMPTY if no word covers it, and coveredCells counts the
+     *      covered cells. acrossAt[i] (downAt[i]) is the across (down) word through cell i, or null, and
+     *      wordCells[slot] lists the cells of words[slot] in order. allCells lists the cells of every word, word by
+     *      word, and hintString, numberString and cellString are the parts of the client string built from them.
+     *      clientPrefix is the client string up to and including the separator before the character layer.
+     *      allCellIndex[k] is the cell of allCells.get(k) and cellLabels[k] its coordinates as shown in the character layer.
+     * Rep Invariant:
+     *      rows, cols > 0
+     *      words.length = answers.size = hints.size > 0
+     *      words[i].getSlot() = i, wordCells.length = words.length, wordCells[i].length = words[i].size()
+     *      solution.length = acrossAt.length = downAt.length = rows * cols
+     *      coveredCells = #{i | solution[i] != EMPTY}
+     *      no two words in the same direction share a cell, and crossing words agree on the letter they share
+     *      allCells.size > answers.size
+     *      allCellIndex.length = cellLabels.length = allCells.size
+     * Safety from Rep Exposure:
+     *      All fields are private and final. answers, hints and allCells are unmodifiable, Words and Positions are
+     *      immutable, and the arrays are only handed to Boards of this package, which never write to them.
+     * Thread Safety Argument:
+     *      Immutable, and safely published through its final fields, so one template is shared by every match.
+     */
+
+    static final char EMPTY = '#';
+
+    /** Most cells the grid of a puzzle may have, since every cell is allocated up front. */
+    static final int MAX_CELLS = 1 << 24;
+
+    private final String name;
+    private final String description;
+    private final Word[] words;
+    private final Map<Integer, Word> answers;
+    private final Map<Integer, String> hints;
+    private final List<Position> allCells;
+    private final int rows, cols;
+    private final char[] solution;
+    private final int coveredCells;
+    private final Word[] acrossAt;
+    private final Word[] downAt;
+    private final int[][] wordCells;
+    private final String hintString;
+    private final String numberString;
+    private final String cellString;
+    private final String clientPrefix;
+    private final int[] allCellIndex;
+    private final String[] cellLabels;
+
+    /**
+     * Lays out a puzzle and checks that it is consistent.
+     * @param name the name of the puzzle
+     * @param description the description of the theme
+     * @param allWords the words of the puzzle, not empty
+     * @throws IllegalArgumentException if its grid has more than MAX_CELLS cells, or if the
+     *         puzzle is inconsistent, naming the first conflict found: two words in the same
+     *         direction sharing a cell, or crossing words with different letters in the cell they share
+     */
+    public PuzzleTemplate(String name, String description, List<Word> allWords) {
+        this.name = name;
+        this.description = description;
+        this.words = new Word[allWords.size()];
+        Map<Integer, Word> answers = new HashMap<>();
+        Map<Integer, String> hints = new HashMap<>();
+        List<Position> allCells = new ArrayList<>();
+        int rowMax = 0, colMax = 0;
+        for (int slot = 0; slot < this.words.length; slot++) {
+            Word elt = allWords.get(slot).withSlot(slot);
+            this.words[slot] = elt;
+            answers.put(elt.getNum(), elt);
+            hints.put(elt.getNum(), elt.getHint());
+            for (int i = 0; i < elt.size(); i++) {
+                if (elt.getDir() == Direction.DOWN) {
+                    allCells.add(new Position(elt.getRow() + i, elt.getCol()));
+                } else if (elt.getDir() == Direction.ACROSS) {
+                    allCells.add(new Position(elt.getRow(), elt.getCol() + i));
+                }
+            }
+            rowMax = Math.max(rowMax, elt.getEnd().getRow());
+            colMax = Math.max(colMax, elt.getEnd().getCol());
+        }
+        this.answers = Collections.unmodifiableMap(answers);
+        this.hints = Collections.unmodifiableMap(hints);
+        this.allCells = Collections.unmodifiableList(allCells);
+        this.rows = rowMax + 1;
+        this.cols = colMax + 1;
+        int cells = gridCells(rows, cols);
+
+        // lay out the words and check consistency in one pass over their letters: a cell may be
+        // covered by at most one word in each direction, and crossing words must agree on it
+        this.solution = new char[cells];
+        Arrays.fill(this.solution, EMPTY);
+        this.acrossAt = new Word[cells];
+        this.downAt = new Word[cells];
+        this.wordCells = new int[words.length][];
+        int covered = 0;
+        for (Word elt : this.words) {
+            Word[] wordAt = (elt.getDir() == Direction.ACROSS) ? this.acrossAt : this.downAt;
+            Word[] crossAt = (elt.getDir() == Direction.ACROSS) ? this.downAt : this.acrossAt;
+            int[] indices = new int[elt.size()];
+            for (int i = 0; i < elt.size(); i++) {
+                int index = (elt.getDir() == Direction.ACROSS) ? cell(elt.getRow(), elt.getCol() + i) : cell(elt.getRow() + i, elt.getCol());
+                char letter = elt.getWord().charAt(i);
+                if (wordAt[index] != null) {
+                    throw new IllegalArgumentException("words " + wordAt[index].getNum() + " and " + elt.getNum()
+                            + " overlap " + elt.getDir() + " at " + label(index));
+                } else if (this.solution[index] == EMPTY) {
+                    covered++;
+                } else if (this.solution[index] != letter) {
+                    throw new IllegalArgumentException("words " + crossAt[index].getNum() + " and " + elt.getNum()
+                            + " cross at " + label(index) + " with different letters '" + this.solution[index]
+                            + "' and '" + letter + "'");
+                }
+                this.solution[index] = letter;
+                wordAt[index] = elt;
+                indices[i] = index;
+            }
+            this.wordCells[elt.getSlot()] = indices;
+        }
+        this.coveredCells = covered;
+        this.hintString = renderHints();
+        this.numberString = renderNumbers();
+        this.cellString = renderCells();
+        this.clientPrefix = this.name + " | " + this.description + " | " + this.hintString + "|" + this.numberString + "|" + this.cellString + "|";
+        this.allCellIndex = new int[this.allCells.size()];
+        this.cellLabels = new String[this.allCells.size()];
+        for (int k = 0; k < this.allCellIndex.length; k++) {
+            Position pos = this.allCells.get(k);
+            this.allCellIndex[k] = cell(pos.getRow(), pos.getCol());
+            this.cellLabels[k] = " (" + pos.getRow() + "," + pos.getCol() + ") ";
+        }
+        assert(this.checkRep());
+    }
+
+    /**
+     * @return true if this instance is valid according to the rep invariant
+     */
+    private boolean checkRep() {
+        boolean boardSize = this.rows > 0 && this.cols > 0 && this.solution.length == this.rows * this.cols
+                && this.acrossAt.length == this.solution.length && this.downAt.length == this.solution.length;
+        boolean wordsSize = this.words.length > 0 && this.words.length == this.answers.size()
+                && this.hints.size() == this.answers.size() && this.wordCells.length == this.words.length
+                && this.allCells.size() > this.answers.size()
+                && this.allCellIndex.length == this.allCells.size() && this.cellLabels.length == this.allCells.size();
+        return boardSize && wordsSize && this.coveredCells <= this.solution.length;
+    }
+
+    /**
+     * @param rows rows of a grid, > 0
+     * @param cols columns of a grid, > 0
+     * @return the number of cells of the grid
+     * @throws IllegalArgumentException if the grid has more than MAX_CELLS cells
+     */
+    static int gridCells(int rows, int cols) {
+        try {
+            int cells = Math.multiplyExact(rows, cols);
+            if (cells <= MAX_CELLS) {
+                return cells;
+            }
+        } catch (ArithmeticException e) {
+            // more than fit in an int, so more than MAX_CELLS
+        }
+        throw new IllegalArgumentException("grid of " + rows + " x " + cols + " cells has more than "
+                + MAX_CELLS + " cells");
+    }
+
+    private String renderHints() {
+        StringBuilder str = new StringBuilder();
+        str.append("Hints ");
+        for (Integer num : this.hints.keySet()) {
+            String dir = (this.answers.get(num).getDir() == Direction.ACROSS)? "ACROSS" : "DOWN";
+            str.append(num + " " + dir + " " + this.hints.get(num) + " ");
+        }
+        return str.toString();
+    }
+
+    private String renderNumbers() {
+        StringBuilder str = new StringBuilder();
+        str.append("Numbers ");
+        for (Word elt : this.answers.values()) {
+            String dir = (elt.getDir() == Direction.ACROSS)? "ACROSS": "DOWN";
+            str.append("num" + elt.getNum() + "Dir" + dir +"Coor"+ " (" + elt.getRow() + "," + elt.getCol() + ") ");
+        }
+        return str.toString();
+    }
+
+    private String renderCells() {
+        StringBuilder str = new StringBuilder();
+        str.append("Cells ");
+        for (Position pos : this.allCells) {
+            str.append("#" + " (" + pos.getRow() + "," + pos.getCol() + ") ");
+        }
+        return str.toString();
+    }
+
+    /**
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return the index of the cell in solution, acrossAt and downAt
+     */
+    int cell(int row, int col) {
+        return row * this.cols + col;
+    }
+
+    /**
+     * @param index index of a cell
+     * @return the coordinates of the cell, as (row,col)
+     */
+    private String label(int index) {
+        return "(" + index / this.cols + "," + index % this.cols + ")";
+    }
+
+    /**
+     * @return a new board for a match on this puzzle, with no players and no guesses
+     */
+    public Board newBoard() {
+        return new Board(this);
+    }
+
+    /**
+     * @return the name of the puzzle
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return the description of the puzzle's theme
+     */
+    public String getDescription() {
+        return this.description;
+    }
+
+    /**
+     * @return a string that contains all hints and their numbers
+     */
+    public String getHints() {
+        return this.hintString;
+    }
+
+    /**
+     * @return a string of the numbers and where they are on the board to be displayed
+     */
+    public String getNumString() {
+        return this.numberString;
+    }
+
+    /**
+     * @return a string of all the cells on the board and where they are to be displayed
+     */
+    public String getCellString() {
+        return this.cellString;
+    }
+
+    /**
+     * @return the client string of a board on this puzzle without its character layer, which is
+     *         appended to it by Board.getClientString()
+     */
+    public String getClientPrefix() {
+        return this.clientPrefix;
+    }
+
+    // The accessors below hand out the shared rep to Boards; callers must not modify what they return.
+
+    int rows() { return this.rows; }
+    int cols() { return this.cols; }
+    Word[] words() { return this.words; }
+    Map<Integer, Word> answers() { return this.answers; }
+    char[] solution() { return this.solution; }
+    int coveredCells() { return this.coveredCells; }
+    Word[] acrossAt() { return this.acrossAt; }
+    Word[] downAt() { return this.downAt; }
+    int[][] wordCells() { return this.wordCells; }
+    int[] allCellIndex() { return this.allCellIndex; }
+    String[] cellLabels() { return this.cellLabels; }
+
+    @Override
+    public String toString() {
+        return this.name + " " + this.description;
+    }
+}
@@ -0,0 +1,330 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import crossword.Board.Direction;
+
+/**
+ * Validates puzzle files of any size, such as those written by a puzzle generator, reading them a
+ * buffer at a time with FastCrosswordParser and reporting every problem with the line and column
+ * of the entry it is in. Consistency is checked against an index of the cells covered so far, so
+ * a file is validated in time proportional to its letters and memory proportional to its cells,
+ * without holding its text or its words.
+ *
+ * A file passes if it is in the layout FastCrosswordParser reads, the puzzle is consistent and
+ * its grid has at most PuzzleTemplate.MAX_CELLS cells; PuzzleTemplate accepts every such puzzle.
+ * Text outside that layout is reported where reading stops,
+ * even where the grammar would accept it, since it would read differently than it looks (for
+ * example, "(cat , ..." makes the word "cat " with a space).
+ */
+class PuzzleValidator {
+
+    private PuzzleValidator() {
+        // not meant to be instantiated
+    }
+
+    /**
+     * A problem found in a puzzle file.
+     */
+    static class Problem {
+        // AF(line, column, message) = the problem described by message, found at line and column of the file
+        // RI: line, column >= 1
+        private final int line;
+        private final int column;
+        private final String message;
+
+        private Problem(int line, int column, String message) {
+            this.line = line;
+            this.column = column;
+            this.message = message;
+        }
+
+        /** @return line of the entry or text with the problem, from 1 */
+        public int getLine() {
+            return line;
+        }
+
+        /** @return column of the entry or text with the problem, from 1 */
+        public int getColumn() {
+            return column;
+        }
+
+        /** @return what the problem is */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + ", column " + column + ": " + message;
+        }
+    }
+
+    /**
+     * Outcome of validating one file.
+     */
+    static class Summary {
+        // AF(entries, letters, cells, problems, complete) = a file with entries entries holding letters letters
+        //      over cells distinct cells, all of it read if complete, in which problems problems were found
+        // RI: 0 <= cells <= letters, problems >= 0, problems > 0 if !complete
+        private final int entries;
+        private final long letters;
+        private final int cells;
+        private final long problems;
+        private final boolean complete;
+
+        private Summary(int entries, long letters, int cells, long problems, boolean complete) {
+            this.entries = entries;
+            this.letters = letters;
+            this.cells = cells;
+            this.problems = problems;
+            this.complete = complete;
+        }
+
+        /** @return entries read */
+        public int getEntries() {
+            return entries;
+        }
+
+        /** @return problems found */
+        public long getProblems() {
+            return problems;
+        }
+
+        /** @return true if the whole file was read and no problem was found */
+        public boolean isValid() {
+            return problems == 0;
+        }
+
+        @Override
+        public String toString() {
+            return entries + " entries, " + letters + " letters in " + cells + " cells"
+                    + (complete ? "" : " before reading stopped") + ", " + problems + " problems";
+        }
+    }
+
+    /**
+     * Validate a puzzle file, reporting each problem as it is found.
+     * @param in the puzzle file, read to the end or to the first text outside the layout accepted
+     * @param problems told about each problem, in the order of the file
+     * @return the summary
+     * @throws IOException if in cannot be read
+     */
+    public static Summary validate(Reader in, Consumer<Problem> problems) throws IOException {
+        Checker checker = new Checker(problems);
+        boolean complete = FastCrosswordParser.read(in, checker);
+        return new Summary(checker.entries, checker.letters, checker.cells.size, checker.found, complete);
+    }
+
+    /** Checks each entry against the cells of the entries before it. */
+    private static class Checker implements FastCrosswordParser.Listener {
+        // AF(problems, cells, lines, columns, entries, letters, found, rowMax, colMax, oversized) = a check of a
+        //      file whose first entries entries, holding letters letters over the cells of cells, have been checked;
+        //      entry k (from 1) is at lines[k], columns[k], the grid laid out for them has rowMax + 1 rows and
+        //      colMax + 1 columns, and the found problems in them have been given to problems, including one
+        //      for the grid being too large if oversized
+        // RI: lines.length = columns.length > entries
+        private final Consumer<Problem> problems;
+        private final CellIndex cells = new CellIndex();
+        private int[] lines = new int[1024];
+        private int[] columns = new int[1024];
+        private int entries = 0;
+        private long letters = 0;
+        private long found = 0;
+        private int rowMax = 0;
+        private int colMax = 0;
+        private boolean oversized = false;
+
+        private Checker(Consumer<Problem> problems) {
+            this.problems = problems;
+        }
+
+        @Override
+        public void header(String name, String description) {
+            // nothing to check
+        }
+
+        @Override
+        public void entry(Word word, int line, int column) {
+            int number = word.getNum();
+            if (number >= lines.length) {
+                lines = Arrays.copyOf(lines, 2 * lines.length);
+                columns = Arrays.copyOf(columns, 2 * columns.length);
+            }
+            lines[number] = line;
+            columns[number] = column;
+            entries++;
+
+            boolean across = word.getDir() == Direction.ACROSS;
+            // a word overlaps another word in its direction in a run of cells; report each once
+            int lastOverlapped = 0;
+            for (int i = 0; i < word.size(); i++) {
+                int row = across ? word.getRow() : word.getRow() + i;
+                int col = across ? word.getCol() + i : word.getCol();
+                char letter = word.getWord().charAt(i);
+                int slot = cells.slot(row, col);
+                int[] sameAt = across ? cells.across : cells.down;
+                int[] crossAt = across ? cells.down : cells.across;
+                if (sameAt[slot] == 0) {
+                    sameAt[slot] = number;
+                } else if (sameAt[slot] != lastOverlapped) {
+                    lastOverlapped = sameAt[slot];
+                    report(line, column, "word " + number + " overlaps word " + describe(lastOverlapped)
+                            + " " + word.getDir() + " at (" + row + "," + col + ")");
+                }
+                if (cells.letters[slot] == 0) {
+                    cells.letters[slot] = letter;
+                } else if (cells.letters[slot] != letter && crossAt[slot] != 0) {
+                    report(line, column, "word " + number + " crosses word " + describe(crossAt[slot])
+                            + " at (" + row + "," + col + ") with '" + letter + "' where it has '"
+                            + cells.letters[slot] + "'");
+                }
+            }
+            letters += word.size();
+
+            // PuzzleTemplate lays the grid out up to the first position after each word
+            Position end = word.getEnd();
+            rowMax = Math.max(rowMax, end.getRow());
+            colMax = Math.max(colMax, end.getCol());
+            if (!oversized) {
+                try {
+                    PuzzleTemplate.gridCells(rowMax + 1, colMax + 1);
+                } catch (IllegalArgumentException e) {
+                    oversized = true;
+                    report(line, column, "word " + number + " makes the grid " + (rowMax + 1) + " x " + (colMax + 1)
+                            + " cells, more than " + PuzzleTemplate.MAX_CELLS);
+                }
+            }
+        }
+
+        @Override
+        public void stopped(int line, int column, String expected) {
+            report(line, column, "expected " + expected);
+        }
+
+        private String describe(int number) {
+            return number + " (line " + lines[number] + ", column " + columns[number] + ")";
+        }
+
+        private void report(int line, int column, String message) {
+            found++;
+            problems.accept(new Problem(line, column, message));
+        }
+    }
+
+    /**
+     * Open-addressing hash table of the cells covered so far, keyed by row and column, with the
+     * letter and the across and down words of each cell in arrays beside the keys.
+     */
+    private static class CellIndex {
+        // AF(keys, letters, across, down, size) = the cells (keys[i] >> 32, (int)keys[i]) for keys[i] != FREE,
+        //      covered by across word number across[i] (0 if none) and down word number down[i] (0 if none),
+        //      and holding letters[i]
+        // RI: keys.length is a power of two, size = #{i | keys[i] != FREE} <= keys.length / 2,
+        //     keys, letters, across and down all have the same length
+        private static final long FREE = -1;
+        private static final int INITIAL_CAPACITY = 1 << 12;
+
+        private long[] keys;
+        private char[] letters;
+        private int[] across;
+        private int[] down;
+        private int size = 0;
+
+        private CellIndex() {
+            allocate(INITIAL_CAPACITY);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, FREE);
+            letters = new char[capacity];
+            across = new int[capacity];
+            down = new int[capacity];
+        }
+
+        /**
+         * @param row row of a cell, >= 0
+         * @param col column of a cell, >= 0
+         * @return the index of the cell in the arrays, adding it with no letter and no words if new
+         */
+        private int slot(int row, int col) {
+            long key = (long)row << 32 | col;
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != FREE) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            if (size + 1 > keys.length / 2) {
+                grow();
+                return slot(row, col);
+            }
+            keys[i] = key;
+            size++;
+            return i;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            char[] oldLetters = letters;
+            int[] oldAcross = across;
+            int[] oldDown = down;
+            allocate(2 * oldKeys.length);
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != FREE) {
+                    int i = hash(oldKeys[j]) & mask;
+                    while (keys[i] != FREE) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    letters[i] = oldLetters[j];
+                    across[i] = oldAcross[j];
+                    down[i] = oldDown[j];
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            return (int)((key * 0x9E3779B97F4A7C15L) >>> 32);
+        }
+    }
+
+    /**
+     * Validate puzzle files, printing each problem as file:line:column: message and a summary of
+     * each file, and exiting with status 1 if any file has a problem.
+     * @param args the puzzle files
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("usage: PuzzleValidator puzzle-file...");
+        }
+        boolean allValid = true;
+        for (String file : args) {
+            Path path = Paths.get(file);
+            long start = System.nanoTime();
+            Summary summary;
+            try (Reader in = Files.newBufferedReader(path, UTF_8)) {
+                summary = validate(in, problem -> System.out.println(
+                        file + ":" + problem.getLine() + ":" + problem.getColumn() + ": " + problem.getMessage()));
+            }
+            System.out.println(file + ": " + summary + " (" + (System.nanoTime() - start) / 1_000_000 + " ms)");
+            allValid &= summary.isValid();
+        }
+        if (!allValid) {
+            System.exit(1);
+        }
+    }
+}
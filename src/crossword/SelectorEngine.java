@@ -0,0 +1,315 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking connection engine for ServerHelper. A single selector thread accepts
+ * clients, reads newline-delimited requests (or binary frames, once a client has asked for
+ * them, see WireCodec) and writes queued responses; requests are handed to a small worker
+ * pool, one at a time per connection, so the protocol behaves exactly as in the
+ * thread-per-connection mode. Responses are queued by send() and written by the selector
+ * thread, so a client that stops reading only grows its own queue, up to
+ * Connection.MAX_PENDING_BYTES, after which it is disconnected.
+ */
+class SelectorEngine {
+    // AF(serverChannel, selector, workers, server) = an event loop accepting clients on serverChannel
+    //                                        and dispatching each of their lines to server on workers
+    // RI: serverChannel is registered with selector for OP_ACCEPT
+    // Thread Safety: the selector, its keys, all read buffers and writeBatch are confined to the thread running serve().
+    //      Other threads only touch a connection through its outbound queue and the pending write queue,
+    //      which are threadsafe, and then wake the selector up.
+
+    /** Longest request line or frame accepted before the client is disconnected. */
+    private static final int MAX_LINE_BYTES = WireCodec.MAX_MESSAGE_BYTES;
+    private static final int READ_BUFFER_BYTES = 4096;
+    /** Most queued messages handed to the kernel by one gathering write. */
+    private static final int WRITE_BATCH = 64;
+    private static final Log LOG = Log.named("server");
+
+    private final ServerSocketChannel serverChannel;
+    private final ServerHelper server;
+    private final Selector selector;
+    private final ExecutorService workers;
+    private final Queue<ChannelConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+    private final ByteBuffer[] writeBatch = new ByteBuffer[WRITE_BATCH];
+
+    /**
+     * @param serverChannel bound channel to accept clients on
+     * @param server the server that handles requests
+     * @param workerThreads number of threads handling requests
+     * @throws IOException if the selector cannot be opened
+     */
+    public SelectorEngine(ServerSocketChannel serverChannel, ServerHelper server, int workerThreads) throws IOException {
+        this.serverChannel = serverChannel;
+        this.server = server;
+        this.selector = Selector.open();
+        this.workers = Executors.newFixedThreadPool(workerThreads);
+    }
+
+    /**
+     * Run the event loop. Never returns normally.
+     * @throws IOException if the selector or the server channel fail
+     */
+    public void serve() throws IOException {
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        while (true) {
+            selector.select();
+            for (ChannelConnection conn = pendingWrites.poll(); conn != null; conn = pendingWrites.poll()) {
+                conn.enableWrites();
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                ChannelConnection conn = (ChannelConnection)key.attachment();
+                try {
+                    if (key.isReadable()) {
+                        conn.read();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        conn.write();
+                    }
+                } catch (IOException ioe) {
+                    conn.close();
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        ChannelConnection conn = new ChannelConnection(channel, key);
+        key.attach(conn);
+        conn.requests.execute(() -> server.greet(conn));
+    }
+
+    /**
+     * A client connection driven by the selector.
+     */
+    private class ChannelConnection implements Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final SerialExecutor requests = new SerialExecutor(workers);
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger outboundBytes = new AtomicInteger();
+        private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+        private ByteBuffer partialFrame = null; // non-null once the client reads and writes frames
+        private volatile boolean framesOut = false;
+        private volatile boolean closed = false;
+
+        private ChannelConnection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        @Override
+        public void send(String line) {
+            if (closed) {
+                return;
+            }
+            int bytes = 0;
+            if (framesOut) {
+                for (String part : line.split("\n")) {
+                    byte[] frame = WireCodec.encode(part);
+                    outbound.add(ByteBuffer.wrap(frame));
+                    bytes += frame.length;
+                }
+            } else {
+                byte[] text = (line + "\n").getBytes(UTF_8);
+                outbound.add(ByteBuffer.wrap(text));
+                bytes += text.length;
+            }
+            if (outboundBytes.addAndGet(bytes) > MAX_PENDING_BYTES) {
+                LOG.warn("disconnecting slow client " + channel.socket().getRemoteSocketAddress());
+                outbound.clear();
+                close();
+                return;
+            }
+            pendingWrites.add(this);
+            selector.wakeup();
+        }
+
+        @Override
+        public int queuedBytes() {
+            return outboundBytes.get();
+        }
+
+        @Override
+        public void useFrames() {
+            framesOut = true;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ioe) {
+                LOG.warn("cannot close client channel", ioe);
+            }
+            requests.execute(() -> server.disconnect(this));
+        }
+
+        /** Called on the selector thread after send() queued data. */
+        private void enableWrites() {
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+
+        /** Called on the selector thread when the channel is readable. */
+        private void read() throws IOException {
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining()) {
+                if (partialFrame != null) {
+                    readFrames();
+                    return;
+                }
+                byte b = readBuffer.get();
+                if (b == '\n') {
+                    byte[] bytes = partialLine.toByteArray();
+                    int length = bytes.length;
+                    if (length > 0 && bytes[length - 1] == '\r') {
+                        length--;
+                    }
+                    String line = new String(bytes, 0, length, UTF_8);
+                    partialLine.reset();
+                    requests.execute(() -> server.handleLine(line, this));
+                    if (WireCodec.requestsFrames(line)) {
+                        // the client sends frames right after this line
+                        partialFrame = ByteBuffer.allocate(READ_BUFFER_BYTES);
+                    }
+                } else {
+                    partialLine.write(b);
+                    if (partialLine.size() > MAX_LINE_BYTES) {
+                        close();
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Called on the selector thread with the rest of readBuffer once the client sends frames:
+         * dispatches every complete frame and keeps the incomplete tail for the next read.
+         */
+        private void readFrames() {
+            while (readBuffer.hasRemaining()) {
+                if (!partialFrame.hasRemaining()) {
+                    if (partialFrame.capacity() >= 4 + MAX_LINE_BYTES) {
+                        close();
+                        return;
+                    }
+                    ByteBuffer larger = ByteBuffer.allocate(Math.min(2 * partialFrame.capacity(), 4 + MAX_LINE_BYTES));
+                    partialFrame.flip();
+                    partialFrame = larger.put(partialFrame);
+                }
+                int n = Math.min(readBuffer.remaining(), partialFrame.remaining());
+                ByteBuffer chunk = readBuffer.slice();
+                chunk.limit(n);
+                partialFrame.put(chunk);
+                readBuffer.position(readBuffer.position() + n);
+
+                partialFrame.flip();
+                while (partialFrame.remaining() >= 4) {
+                    int length = partialFrame.getInt(partialFrame.position());
+                    if (length < 1 || length > MAX_LINE_BYTES) {
+                        close();
+                        return;
+                    }
+                    if (partialFrame.remaining() < 4 + length) {
+                        break;
+                    }
+                    ByteBuffer body = partialFrame.duplicate();
+                    body.position(partialFrame.position() + 4).limit(partialFrame.position() + 4 + length);
+                    partialFrame.position(partialFrame.position() + 4 + length);
+                    String[] tokens;
+                    try {
+                        tokens = WireCodec.decodeTokens(body);
+                    } catch (IllegalArgumentException e) {
+                        close();
+                        return;
+                    }
+                    requests.execute(() -> server.handleTokens(tokens, this));
+                }
+                partialFrame.compact();
+            }
+        }
+
+        /**
+         * Called on the selector thread when the channel is writable: hands everything queued
+         * to the kernel, up to WRITE_BATCH messages per system call.
+         */
+        private void write() throws IOException {
+            while (true) {
+                int count = 0;
+                for (ByteBuffer buffer : outbound) {
+                    writeBatch[count++] = buffer;
+                    if (count == WRITE_BATCH) {
+                        break;
+                    }
+                }
+                if (count == 0) {
+                    break;
+                }
+                channel.write(writeBatch, 0, count);
+                boolean full = false;
+                for (int i = 0; i < count; i++) {
+                    if (!full && !writeBatch[i].hasRemaining()) {
+                        outbound.poll();
+                        outboundBytes.addAndGet(-writeBatch[i].limit());
+                    } else {
+                        full = true;
+                    }
+                    writeBatch[i] = null;
+                }
+                if (full) {
+                    return; // socket buffer is full, wait for the next OP_WRITE
+                }
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            if (!outbound.isEmpty()) {
+                // a send() raced with the interest change, make sure it is not lost
+                pendingWrites.add(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package crossword;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Executor that runs submitted tasks one at a time, in submission order, on top of
+ * a shared executor. No thread is dedicated to a SerialExecutor; it only occupies a
+ * thread of the underlying executor while it has pending tasks.
+ */
+class SerialExecutor implements Executor {
+    // AF(tasks, executor, active) = a sequential task queue whose head, active, is
+    //                               currently running (or about to run) on executor
+    // RI: active == null implies no task of this queue is running on executor
+    // Thread Safety: tasks and active are only accessed while holding the lock on this
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final Executor executor;
+    private Runnable active;
+
+    /**
+     * @param executor the executor tasks are actually run on
+     */
+    public SerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        tasks.add(() -> {
+            try {
+                task.run();
+            } finally {
+                scheduleNext();
+            }
+        });
+        if (active == null) {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void scheduleNext() {
+        active = tasks.poll();
+        if (active != null) {
+            executor.execute(active);
+        }
+    }
+}
@@ -4,20 +4,16 @@
 package crossword;
 
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.LinkedList;
 import java.util.Queue;
-import java.util.Set;
-import java.io.File;
-import java.io.FilenameFilter;
 import java.lang.IllegalArgumentException;
 
 /**
  * AF()= Starts a server that coordinates the crossword game. 
- * The crossword puzzle is a .puzzle file in specified folder
+ * The crossword puzzle is a .puzzle file in specified folder, read when a match is first
+ * played on it
  * 
  * RI()= true;
  * 
@@ -34,26 +30,52 @@ public class Server {
     
     /**
      * Start a Crossword Extravaganza server.
-     * @param args The command line arguments should include only the folder where
-     *             the puzzles are located.
+     * @param args The command line arguments should include the folder where
+     *             the puzzles are located, or a puzzle pack compiled from one (see
+     *             PuzzlePack), optionally followed by
+     *             "--mode thread" (default), "--mode selector" or "--mode virtual" to
+     *             choose how client connections are serviced, and "--max-connections N"
+     *             to bound the clients served at once in virtual mode, and
+     *             "--puzzle-cache N" to bound the parsed puzzles kept in memory, or
+     *             "--preload" to parse and validate every puzzle, in parallel, before
+     *             serving only the valid ones. Logging is
+     *             configured with system properties, see Log; every request is logged
+     *             with -Dcrossword.log.requests=DEBUG.
      */
     public static void main(String[] args) {
         final Queue<String> arguments = new LinkedList<>(Arrays.asList(args));
         final String folder= arguments.remove();
-        File dir = new File(folder);
-
-        File[] fileList= dir.listFiles(new FilenameFilter() { 
-                 public boolean accept(File dir, String filename)
-                      { return filename.endsWith(".puzzle");}});
+        ServerHelper.Mode mode = ServerHelper.Mode.THREAD;
+        int maxConnections = ServerHelper.DEFAULT_MAX_CONNECTIONS;
+        int puzzleCache = PuzzleCatalog.DEFAULT_CAPACITY;
+        boolean preload = false;
+        while (!arguments.isEmpty()) {
+            String flag = arguments.remove();
+            if (flag.equals("--preload")) {
+                preload = true;
+            } else if (flag.equals("--mode") && !arguments.isEmpty()) {
+                mode = ServerHelper.Mode.valueOf(arguments.remove().toUpperCase());
+            } else if (flag.equals("--max-connections") && !arguments.isEmpty()) {
+                maxConnections = Integer.parseInt(arguments.remove());
+            } else if (flag.equals("--puzzle-cache") && !arguments.isEmpty()) {
+                puzzleCache = Integer.parseInt(arguments.remove());
+            } else {
+                throw new IllegalArgumentException("unknown flag " + flag);
+            }
+        }
         try {
-            Set<String> puzzles = Collections.synchronizedSet(new HashSet<String>());
-            for(File file:fileList) {
-                String puzzleStr = Files.readString(file.toPath());
-                //Crossword crossword= CrosswordParser.parse(puzzleStr);
-                puzzles.add(puzzleStr);
+            PuzzleCatalog puzzles;
+            if (Files.isRegularFile(Paths.get(folder))) {
+                puzzles = PuzzlePack.open(Paths.get(folder), puzzleCache);
+            } else if (preload) {
+                PuzzleLoader.Report report = PuzzleLoader.loadFolder(Paths.get(folder));
+                report.log();
+                puzzles = report.toCatalog(puzzleCache);
+            } else {
+                puzzles = PuzzleCatalog.scan(Paths.get(folder), puzzleCache);
             }
 
-        new ServerHelper(puzzles).serve();
+        new ServerHelper(puzzles, mode, maxConnections).serve();
         } catch (Exception e) {
             throw new IllegalArgumentException("invalid board");
         }
@@ -1,25 +1,27 @@
 package crossword;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
 
 import java.util.HashMap;
 
 import java.util.Collections;
 
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import edu.mit.eecs.parserlib.UnableToParseException;
 
@@ -34,11 +36,24 @@ public class ServerHelper {
     // --No two crossword in matchID.values() refer to the same object in memory.
     // --len(puzzleID) >= len(matchID)
     // puzzleID
-    // -- No two strings in puzzleID.values() are equal
+    // -- puzzleID is the catalog of puzzles, which maps the name of each puzzle to its template,
+    //    parsed when a match is first created on it (or when the server starts, if the server was
+    //    given the puzzle texts)
+    // -- No two puzzles in puzzleID have the same name
     // ServerSocket
     // --port=4949 (as specified by pset)
     // clientIds
     // -- len(clientIds) <= len(puzzleID)*2
+    // deltaClients
+    // -- the clients in clientIds that asked for board updates as deltas (START [id] DELTA)
+    // sessions
+    // -- maps the id of each player registered on an open connection to its Session, whose match
+    //    is the last match the player created or joined
+    // -- gameIds holds the matches still waiting for a second player
+    // lobby
+    // -- lists gameIds.keySet() and puzzleID.names(), and is told after every change to gameIds
+    //    or puzzleID
+    // -- its subscribers are the sessions that have started but not created or joined a match since
     
     // Safety from Rep Exposure: 
     // All fields are private and final, and never returned to the user.
@@ -46,21 +61,57 @@ public class ServerHelper {
     // each client is confined to one thread (handleRequest is confined), clientIds is a 
      //synchronizedSet (threadsafe DT). ServerHelper is also confined to single thread (i.e. there should
      //only be one server running and handling the different games).
-    // handleRequest only modifies Board, which is a threadsafe type. handleConnection only adds elements
-    // to matchID and puzzleID, which are also threadsafe types. No element is ever removed from matchID or puzzleID.
+    // handleRequest only touches a Board through its MatchMailbox, which runs the operations of a match
+    // one at a time on matchExecutor; responses are written to connections after the mailbox
+    // operation has returned, so a slow client never delays moves. Connection.send only queues the
+    // response, the socket is written by the connection's own writer task (outboundWriters in THREAD
+    // and VIRTUAL mode, the selector thread in SELECTOR mode), so a slow client never delays the
+    // requests of other clients either. handleConnection only adds elements
+    // to matchID and puzzleID, which are also threadsafe types. No element is ever removed from matchID,
+    // and the only puzzles removed from puzzleID are those found to be invalid when first parsed.
+    // sessions is a threadsafe map of threadsafe Sessions; a request finds its player's match,
+    // match id and opponent through one lookup instead of scanning every player.
+    // gameIds is a threadsafe map whose single atomic operations are the claims on a match: NEW adds
+    // a match with putIfAbsent and PLAY takes it with remove, so racing requests for one match id
+    // get exactly one ok.
+    // In SELECTOR mode the requests of one client are still handled one at a time (see SelectorEngine),
+    // so the same argument holds with "thread" read as "connection".
 
-    private final ServerSocket serverSocket;
-    private final ConcurrentMap<String,Board> gameIds;
-    private final ConcurrentMap<String, List<String>> gameIdsByPlayer;
-    /*
-     * TODO: it is bad that we are storing a Board for each puzzleID, i think we should construct Boards
-     * as needed so we can have multiple Board objects for the same crossword puzzle so different clients can play two
-     * games with the same base puzzle concurrently
+    /**
+     * How client connections are serviced.
      */
-    private final ConcurrentMap<String, PrintWriter> socketByPlayer;
-    private final ConcurrentMap<String, Board> boardByPlayer; 
-    private final ConcurrentMap<String, String> puzzleID;
+    public enum Mode {
+        /** one blocking platform thread per client */
+        THREAD,
+        /** a single non-blocking selector thread plus a small worker pool for requests */
+        SELECTOR,
+        /** one blocking virtual thread per client (small-stack platform threads before Java 21) */
+        VIRTUAL
+    }
+
+    /** Default bound on concurrently served connections in VIRTUAL mode. */
+    public static final int DEFAULT_MAX_CONNECTIONS = 100_000;
+    /** Stack size requested for connection threads when virtual threads are unavailable. */
+    private static final long SMALL_STACK_BYTES = 128 * 1024;
+    /** Most players the session table is sized for up front; it still grows past this. */
+    private static final int MAX_PRESIZED_PLAYERS = 1 << 16;
+    private static final Log LOG = Log.named("server");
+    /** Logs every request line at DEBUG; off unless -Dcrossword.log.requests=DEBUG. */
+    private static final Log REQUESTS = Log.named("requests", Log.Level.OFF);
+
+    private final Mode mode;
+    private final AdmissionLimiter admission;
+    private final ServerSocketChannel serverChannel;
+    private final ServerSocket serverSocket;
+    private final ConcurrentMap<String,MatchMailbox> gameIds;
+    private final ConcurrentMap<String, Session> sessions;
+    private final ExecutorService matchExecutor;
+    private final ExecutorService outboundWriters;
+    private final Lobby lobby;
+    private final ServerStats stats;
+    private final PuzzleCatalog puzzleID;
     private final Set<String> clientIds = Collections.synchronizedSet(new HashSet<String>());
+    private final Set<String> deltaClients = ConcurrentHashMap.newKeySet();
 
     
     
@@ -71,20 +122,64 @@ public class ServerHelper {
      * @throws IOException if an error occurs opening the server socket
      */
     public ServerHelper(Set<String> puzzleStrs)  throws IOException, UnableToParseException {
-        this.serverSocket = new ServerSocket(4949);
-        this.gameIds= new ConcurrentHashMap<String,Board>();
-        this.gameIdsByPlayer = new ConcurrentHashMap<String, List<String>>();
-        this.puzzleID=new ConcurrentHashMap<String, String>();
-        this.socketByPlayer = new ConcurrentHashMap<String, PrintWriter>();
-        this.boardByPlayer=new ConcurrentHashMap<String, Board>();
-        for(String puzzleStr: puzzleStrs) {
-            try {
-                Board crossword= (Board)CrosswordParser.parse(puzzleStr);
-                this.puzzleID.put(crossword.getName(), puzzleStr);
-            } catch(Exception e) {
-                System.out.println(puzzleStr);
-            }
-        }
+        this(puzzleStrs, Mode.THREAD);
+    }
+
+    /**
+     * Make a new text game server that listens for connections on port 4949.
+     * 
+     * @param puzzleStrs set of puzzles
+     * @param mode how client connections are serviced
+     * @throws IOException if an error occurs opening the server socket
+     */
+    public ServerHelper(Set<String> puzzleStrs, Mode mode)  throws IOException, UnableToParseException {
+        this(puzzleStrs, mode, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Make a new text game server that listens for connections on port 4949.
+     * Every puzzle is parsed and validated, in parallel, before the server is returned; invalid
+     * ones are reported and skipped.
+     * 
+     * @param puzzleStrs set of puzzles
+     * @param mode how client connections are serviced
+     * @param maxConnections connections served at once in VIRTUAL mode before new ones are turned away, > 0
+     * @throws IOException if an error occurs opening the server socket
+     */
+    public ServerHelper(Set<String> puzzleStrs, Mode mode, int maxConnections)  throws IOException, UnableToParseException {
+        this(new PuzzleCatalog(PuzzleCatalog.DEFAULT_CAPACITY), mode, maxConnections);
+        PuzzleLoader.Report report = PuzzleLoader.loadTexts(puzzleStrs);
+        report.log();
+        report.recordTo(stats::recordParse);
+        report.getTemplates().forEach(this.puzzleID::add);
+        this.lobby.puzzlesChanged();
+    }
+
+    /**
+     * Make a new text game server that listens for connections on port 4949.
+     * Puzzles are parsed when a match is first created on them.
+     * 
+     * @param puzzles catalog of the puzzles to serve
+     * @param mode how client connections are serviced
+     * @param maxConnections connections served at once in VIRTUAL mode before new ones are turned away, > 0
+     * @throws IOException if an error occurs opening the server socket
+     */
+    public ServerHelper(PuzzleCatalog puzzles, Mode mode, int maxConnections)  throws IOException {
+        this.mode = mode;
+        this.admission = new AdmissionLimiter(maxConnections);
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(4949));
+        this.serverSocket = serverChannel.socket();
+        int expectedPlayers = Math.min(maxConnections, MAX_PRESIZED_PLAYERS);
+        this.gameIds= new ConcurrentHashMap<String,MatchMailbox>(expectedPlayers / 2);
+        this.puzzleID=puzzles;
+        this.sessions = new ConcurrentHashMap<String, Session>(expectedPlayers);
+        this.matchExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.outboundWriters = newConnectionExecutor();
+        this.stats = new ServerStats(this.gameIds::size, this::activeMatches, this::queuedBytes, this.admission);
+        this.puzzleID.setParseListener(stats::recordParse);
+        this.lobby = new Lobby(this.gameIds.keySet(), this.puzzleID.names());
+        this.stats.register();
     }
     
     
@@ -102,31 +197,122 @@ public class ServerHelper {
      * @throws IOException if an error occurs waiting for a connection
      */
     public void serve() throws IOException {
-        System.err.println("Server listening on " + serverSocket.getLocalSocketAddress());
+        LOG.info("Server listening on " + serverSocket.getLocalSocketAddress() + " (" + mode + ")");
+        if (mode == Mode.SELECTOR) {
+            new SelectorEngine(serverChannel, this, Runtime.getRuntime().availableProcessors()).serve();
+        } else if (mode == Mode.VIRTUAL) {
+            serveVirtual();
+        }
         while (true) {
             // block until a client connects
             Socket socket = serverSocket.accept();
             
             new Thread(new Runnable() {
                 public void run() {
-                    try {
-
-                        handleConnection(socket);
-
-                    } catch (IOException | UnableToParseException ioe) {
-                        ioe.printStackTrace(); // but do not stop serving
-                    } finally {
-                        try {
-                        socket.close();
-                        } catch (IOException io) {
-                            io.printStackTrace();
-                        }
-                    }
+                    serveSocket(socket);
                 }
             }).start();            
         }
     }
     
+    /**
+     * Accept loop of VIRTUAL mode: each admitted client gets its own cheap thread, clients
+     * beyond the connection limit are disconnected immediately.
+     * 
+     * @throws IOException if an error occurs waiting for a connection
+     */
+    private void serveVirtual() throws IOException {
+        ExecutorService connectionThreads = newConnectionExecutor();
+        while (true) {
+            Socket socket = serverSocket.accept();
+            if (!admission.tryAdmit()) {
+                LOG.warn("connection refused, " + admission);
+                socket.close();
+                continue;
+            }
+            connectionThreads.execute(() -> {
+                try {
+                    serveSocket(socket);
+                } finally {
+                    admission.release();
+                }
+            });
+        }
+    }
+    
+    /**
+     * @return a virtual-thread-per-task executor when the JVM has one (Java 21+), otherwise an
+     *         unbounded executor whose platform threads request a small stack; also used by
+     *         LoadGenerator for its simulated clients
+     */
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(null, task, "crossword-connection", SMALL_STACK_BYTES);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    /**
+     * @return counters and latencies of this server, also registered over JMX
+     */
+    public ServerStatsMXBean stats() {
+        return stats;
+    }
+    
+    /**
+     * @return number of distinct matches that at least one connected player is in
+     */
+    private int activeMatches() {
+        Set<MatchMailbox> matches = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(Session session: sessions.values()) {
+            MatchMailbox match = session.getMatch();
+            if(match != null) {
+                matches.add(match);
+            }
+        }
+        return matches.size();
+    }
+    
+    /**
+     * @return bytes queued for connected players and not yet written
+     */
+    private long queuedBytes() {
+        Set<Connection> connections = Collections.newSetFromMap(new IdentityHashMap<>());
+        long bytes = 0;
+        for(Session session: sessions.values()) {
+            Connection conn = session.getConnection();
+            if(connections.add(conn)) {
+                bytes += conn.queuedBytes();
+            }
+        }
+        return bytes;
+    }
+    
+    /**
+     * Serve a client until it disconnects, then close its socket.
+     * @param socket socket connected to client
+     */
+    private void serveSocket(Socket socket) {
+        try {
+
+            handleConnection(socket);
+
+        } catch (IOException | UnableToParseException ioe) {
+            LOG.warn("client connection failed", ioe); // but do not stop serving
+        } finally {
+            try {
+            socket.close();
+            } catch (IOException io) {
+                LOG.warn("cannot close client socket", io);
+            }
+        }
+    }
+    
     /**
      * Handle a single client connection.
      * Returns when the client disconnects.
@@ -137,80 +323,234 @@ public class ServerHelper {
      */
     private void handleConnection(Socket socket) throws IOException, UnableToParseException { 
         
-        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
-        PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), UTF_8), true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        Connection conn = new StreamConnection(socket, outboundWriters);
         try {
-            //out.println(crossword.getClientString());
-            out.println(clientIds);
-            /*String id = in.readLine();
-            System.out.println(id);*/
-            System.out.println("connected");
-            for(String input = in.readLine(); input != null; input = in.readLine()) {
-                System.out.println(input);
-                String response = handleRequest(input);
-                /*if(response.equals("QUIT")) {
-                    out.close();
-                    in.close();
-                    socket.close();
-                }*/
-                if(response.startsWith("START")) {
-                    String[] responseTokens = response.split(" ");
-                    socketByPlayer.put(responseTokens[1], out);
+            greet(conn);
+            boolean frames = false;
+            while (true) {
+                if (frames) {
+                    ByteBuffer frame = WireCodec.readFrame(in);
+                    if (frame == null) {
+                        break;
+                    }
+                    String[] tokens;
+                    try {
+                        tokens = WireCodec.decodeTokens(frame);
+                    } catch (IllegalArgumentException e) {
+                        LOG.warn("malformed frame, dropping client", e);
+                        break;
+                    }
+                    handleRequestTokens(tokens, conn);
+                } else {
+                    String input = WireCodec.readLine(in);
+                    if (input == null) {
+                        break;
+                    }
+                    frames = handleRequestLine(input, conn);
                 }
-                out.println(response);
             }
         } finally {
-            for(String userID: socketByPlayer.keySet()) {
-                PrintWriter p = socketByPlayer.get(userID);
-                if(p.equals(out)) {
-                    socketByPlayer.remove(userID);
-                    boardByPlayer.remove(userID);
-                }
-            }
-            out.close();
+            disconnect(conn);
+            conn.close();
             in.close();
         }
-        
-//        try {
-//            for (String input = in.readLine(); input != null; input = in.readLine()) {
-//                String output = handleRequest(input, player);
-//
-//                out.println(output);
-//            }
-//        } finally {
-//            out.close();
-//            in.close();
-//        }
-
     }
     
-    private String matchString() {
-        String ids = "";
-        for(String matchId: this.gameIds.keySet()) {
-            ids = ids + "->" + matchId;
+    /**
+     * Send the greeting a client receives as soon as it connects.
+     * @param conn the newly connected client
+     */
+    void greet(Connection conn) {
+        stats.connectionOpened();
+        conn.send(clientIds.toString());
+        LOG.debug("connected");
+    }
+    
+    /**
+     * Handle one request line from a client of the SELECTOR engine. Failures are reported
+     * and close the connection, as they end the client's thread in THREAD mode.
+     * @param input request line, without the newline
+     * @param conn the client that sent it
+     */
+    void handleLine(String input, Connection conn) {
+        try {
+            handleRequestLine(input, conn);
+        } catch (UnableToParseException | RuntimeException e) {
+            LOG.warn("request failed, dropping client", e);
+            conn.close();
         }
-        return ids;
     }
     
-    private String puzzlesString() {
-        String output = "";
-        System.out.println(puzzleID.toString());
-        for(String crosswordName: this.puzzleID.keySet()) {
-            output = output + "->" + crosswordName;
+    /**
+     * Handle one request frame from a client of the SELECTOR engine, like handleLine.
+     * @param tokens the decoded request
+     * @param conn the client that sent it
+     */
+    void handleTokens(String[] tokens, Connection conn) {
+        try {
+            handleRequestTokens(tokens, conn);
+        } catch (UnableToParseException | RuntimeException e) {
+            LOG.warn("request failed, dropping client", e);
+            conn.close();
         }
-        return output;
+    }
+    
+    /**
+     * @return true if the client sends and receives frames from now on
+     */
+    private boolean handleRequestLine(String input, Connection conn) throws UnableToParseException {
+        REQUESTS.debug(input);
+        return handleRequestTokens(input.split(" "), conn);
+    }
+    
+    /**
+     * @return true if the client sends and receives frames from now on
+     */
+    private boolean handleRequestTokens(String[] tokens, Connection conn) throws UnableToParseException {
+        long start = System.nanoTime();
+        String response;
+        try {
+            response = handleRequest(tokens);
+        } catch (UnableToParseException | RuntimeException e) {
+            stats.recordRequest(tokens[0], System.nanoTime() - start, true);
+            throw e;
+        }
+        stats.recordRequest(tokens[0], System.nanoTime() - start, false);
+        Session lobbySession = null;
+        if(response.startsWith("START")) {
+            String[] responseTokens = response.split(" ", 3);
+            Session session = sessions.computeIfAbsent(responseTokens[1], id -> new Session(id, conn));
+            session.setConnection(conn);
+            if(responseTokens[2].startsWith("ok")) {
+                lobbySession = session;
+            }
+        }
+        conn.send(response);
+        boolean frames = WireCodec.requestsFrames(tokens);
+        if(frames) {
+            conn.useFrames();
+        }
+        // subscribe only once the START response is queued and the connection is in its final
+        // encoding, so no lobby push can reach the client ahead of the response, which is where
+        // a client asking for frames switches to them
+        if(lobbySession != null) {
+            lobby.subscribe(lobbySession);
+        }
+        return frames;
+    }
+    
+    /**
+     * Forget every player registered on a connection that has gone away.
+     * @param conn the closed connection
+     */
+    void disconnect(Connection conn) {
+        stats.connectionClosed();
+        for(Session session: sessions.values()) {
+            if(conn.equals(session.getConnection())) {
+                sessions.remove(session.getPlayerId(), session);
+                lobby.unsubscribe(session);
+                deltaClients.remove(session.getPlayerId());
+            }
+        }
+    }
+    
+    /**
+     * Response to a move computed inside a match's mailbox. Clients that asked for deltas
+     * receive only the cells the move changed, the others the whole board.
+     */
+    private static class MoveResult {
+        private final String fullBoard;
+        private final String deltaBoard;
+        private final String status;
+        private final int base;
+        private final int version;
+        private final String suffix;
+        private final boolean broadcast;
+        
+        /**
+         * @param board the board right after the move
+         * @param base the version of board before the move
+         * @param full true if a recipient needs the whole board
+         * @param delta true if a recipient needs the delta
+         * @param suffix text appended to the response, such as a final SHOWSCORE line
+         * @param broadcast true if the opponent should receive the response too
+         */
+        private MoveResult(Board board, int base, boolean full, boolean delta, String suffix, boolean broadcast) {
+            this.status = board.tryOrChallengeString();
+            this.fullBoard = full ? board.getClientString() : null;
+            this.deltaBoard = delta ? board.getDeltaString() : null;
+            this.version = board.getVersion();
+            this.base = base;
+            this.suffix = suffix;
+            this.broadcast = broadcast;
+        }
+        
+        /**
+         * @param header the response up to and including "ok"
+         * @param delta true if the recipient asked for deltas
+         * @return the response line(s) to the move for one recipient
+         */
+        private String responseFor(String header, boolean delta) {
+            if (delta) {
+                return header + " DELTA " + base + " " + version + "-->" + deltaBoard + status + suffix;
+            }
+            return header + "-->" + fullBoard + status + suffix;
+        }
+        
+        /**
+         * @param header the response up to and including "ok"
+         * @param delta true if the recipient asked for deltas
+         * @return the whole board for one recipient; if it asked for deltas, versioned and with the
+         *         scores and guesses too
+         */
+        private String snapshotFor(String header, boolean delta) {
+            if (delta) {
+                return header + " FULL " + version + "-->" + fullBoard + status + suffix;
+            }
+            return header + "-->" + fullBoard + suffix;
+        }
+    }
+    
+    /**
+     * @param session a player's session
+     * @return id of the player's opponent, or "" if the player has none
+     */
+    private static String opponentOf(Session session) {
+        String opponentId = session.getOpponentId();
+        return opponentId == null ? "" : opponentId;
+    }
+    
+    /**
+     * @param playerId id of a player
+     * @return the match the player last created or joined, or null if none
+     */
+    private MatchMailbox matchOf(String playerId) {
+        Session session = sessions.get(playerId);
+        return session == null ? null : session.getMatch();
+    }
+    
+    /**
+     * @param playerId id of a player
+     * @return the connection the player is registered on, or null if none
+     */
+    private Connection connectionOf(String playerId) {
+        Session session = sessions.get(playerId);
+        return session == null ? null : session.getConnection();
     }
     
     /**
      * Handles client request and returns server response
      * This handles a particular request from the client according to the wire protocol below
-     * @param input input from client
+     * @param tokens input from client, split on spaces
      * @return output message to client
      * @throws UnableToParseException 
      */
-    private String handleRequest(String input) throws UnableToParseException {
+    private String handleRequest(String[] tokens) throws UnableToParseException {
         //Possible requests:
-        //START [id] --- assigns the client a unique ID
+        //START [id] [DELTA] [BINARY] --- assigns the client a unique ID; with DELTA, board updates
+            //   after moves are sent as deltas (see SYNC); with BINARY, every message after the
+            //   response, in both directions, is a binary frame (see WireCodec)
             //response: START [id] ok
             //          [matches available] 
             //          [puzzles available]
@@ -232,7 +572,14 @@ public class ServerHelper {
             //response: CHALLENGE [id] [word_id][word_attempt] granted
             //response: CHALLENGE [id] [word_id][word_attempt] failed
         //SHOWSCORE [playerid1] [score1] [playerid2] [score2]-->
-        String[] tokens = input.split(" ");
+        //Board updates to a DELTA client carry versions. A move response is
+            //[response] ok DELTA [base] [version]-->[changed cells]%[status], to be applied to the board at version
+            //base only, and PLAY/SYNC responses are [response] ok FULL [version]-->[board]%[status]
+        //STATS --- asks for the server's counters and latencies (see ServerStats.getSummary)
+            //response: STATS ok [stats]
+        //SYNC [id] --- asks for the whole board after a delta could not be applied
+            //response: SYNC [id] ok FULL [version]-->[board]%[status]
+            //response: SYNC [id] bad
         switch(tokens[0]) {
             case "START": {
                 String id = tokens[1];
@@ -240,43 +587,56 @@ public class ServerHelper {
                     return "START " + id + " bad";
                 } else {
                     this.clientIds.add(id);
-                    //this.socketByPlayer.put(id,  )
-                    return "START " + id + " ok-->" + this.matchString() + "-->" +  this.puzzlesString();
+                    if(List.of(tokens).contains("DELTA")) {
+                        this.deltaClients.add(id);
+                    }
+                    return "START " + id + " ok" + lobby.snapshot();
                 }
             }
             case "NEW": {
                 if(tokens.length==3&&tokens[1].equals("MATCH")) {
-                    return "START " + tokens[2] + " ok-->" + this.matchString() + "-->" +  this.puzzlesString();
+                    return "START " + tokens[2] + " ok" + lobby.snapshot();
                 }
                 String matchID = tokens[1];
                 String puzzleID = "\"" + tokens[2] + "\"";
                 String clientID = tokens[3];
                 if(!this.clientIds.contains(clientID)) {
-                    System.out.println("bad client id, can't start new game");
+                    LOG.debug("bad client id, can't start new game");
                     return "NEW " + matchID + " " + puzzleID + " " + clientID + " bad";
-                } else if(!this.puzzleID.containsKey(puzzleID)) {
-                    System.out.println("bad puzzle id, can't start new game");
-                    return "NEW " + matchID + " " + puzzleID + " " + clientID + " bad";
-                } else if(this.gameIds.containsKey(matchID)) {
-                    System.out.println("bad match id, can't start new game");
+                } else if(!this.puzzleID.contains(puzzleID)) {
+                    LOG.debug("bad puzzle id, can't start new game");
                     return "NEW " + matchID + " " + puzzleID + " " + clientID + " bad";
                 } else {
-                    Board puzzle = (Board)CrosswordParser.parse(this.puzzleID.get(puzzleID));
-                    System.out.println(puzzle.getName());
-                    this.gameIds.put(matchID, puzzle);
-                    this.gameIdsByPlayer.put(matchID,  List.of(clientID));
-                    this.boardByPlayer.put(clientID,  puzzle);
-                    System.out.println(boardByPlayer.get(clientID));
+                    PuzzleTemplate template = this.puzzleID.template(puzzleID);
+                    if(template == null) {
+                        lobby.puzzlesChanged();
+                        return "NEW " + matchID + " " + puzzleID + " " + clientID + " bad";
+                    }
+                    Board board = template.newBoard();
+                    MatchMailbox puzzle = new MatchMailbox(matchID, board, matchExecutor);
                     puzzle.addPlayer(clientID);
-                    for(String somePlayerID: socketByPlayer.keySet()) {
-                        if(!somePlayerID.equals(clientID)) {
-                            PrintWriter writeToClient = socketByPlayer.get(somePlayerID);
-                            writeToClient.println("START " + tokens[2] + " ok-->" + this.matchString() + "-->" +  this.puzzlesString());
+                    // the host joins before the match is published, so a PLAY that claims it at once
+                    // finds the host in it; putIfAbsent claims the match id, so of two NEWs racing
+                    // for it only one succeeds, and the other leaves its host as it was
+                    Session host = this.sessions.get(clientID);
+                    MatchMailbox previousMatch = null;
+                    String previousOpponent = null;
+                    if(host != null) {
+                        previousMatch = host.getMatch();
+                        previousOpponent = host.getOpponentId();
+                        host.join(puzzle, null);
+                    }
+                    if(this.gameIds.putIfAbsent(matchID, puzzle) != null) {
+                        if(host != null) {
+                            host.join(previousMatch, previousOpponent);
                         }
-                        //send a request that will send the client to the choose state appropriately
-                        
-                        //writeToClient.println("NEW " + matchID + " " + puzzleID + " " + clientID + " ok");
+                        LOG.debug("bad match id, can't start new game");
+                        return "NEW " + matchID + " " + puzzleID + " " + clientID + " bad";
                     }
+                    if(host != null) {
+                        lobby.unsubscribe(host);
+                    }
+                    lobby.changed();
                     return "NEW " + matchID + " " + puzzleID + " " + clientID + " ok";
                 }
             }
@@ -284,147 +644,124 @@ public class ServerHelper {
                 String matchID = tokens[1];
                 String clientID = tokens[2];
                 if(!this.clientIds.contains(clientID)) {
-                    System.out.println("bad client id, can't play game");
+                    LOG.debug("bad client id, can't play game");
                     return "PLAY " + matchID + " " + clientID + " bad";
-                } else if(!this.gameIds.containsKey(matchID)) {
-                    System.out.println("bad match id, can't start new game");
+                }
+                // removing the match is the claim on it: of two PLAYs racing for the same match,
+                // only one gets it back
+                MatchMailbox puzzle = gameIds.remove(matchID);
+                if(puzzle == null) {
+                    LOG.debug("bad match id, can't start new game");
                     return "PLAY " + matchID + " " + clientID + " bad";
-                } else {
-                    Board puzzle = gameIds.get(matchID);
-                    //synchronized(puzzle) {
-                        gameIds.remove(matchID);
-                        
-                        String otherPlayerID = gameIdsByPlayer.get(matchID).get(0);
-                        //gameIdsByPlayer.remove(matchID);
-                        gameIdsByPlayer.put(matchID, List.of(otherPlayerID, clientID));
-                        boardByPlayer.put(clientID, puzzle);
-                        boardByPlayer.put(otherPlayerID, puzzle);
-                        puzzle.addPlayer(clientID);
-                        PrintWriter playerOneOut = socketByPlayer.get(otherPlayerID);
-                        for(String somePlayerID: socketByPlayer.keySet()) {
-                            if(!somePlayerID.equals(clientID)&&!somePlayerID.equals(otherPlayerID)) {
-                                PrintWriter writeToClient = socketByPlayer.get(somePlayerID);
-                                writeToClient.println("START " + tokens[2] + " ok-->" + this.matchString() + "-->" +  this.puzzlesString());
-                            }
-                            //send a request that will send the client to the choose state appropriately
-                            
-                            //writeToClient.println("NEW " + matchID + " " + puzzleID + " " + clientID + " ok");
-                        }
-                        playerOneOut.println("PLAY " + matchID + " " + clientID + " ok-->" + puzzle.getClientString());
-                        return "PLAY " + matchID + " " + clientID + " ok-->" + puzzle.getClientString();
-                    //}                 
                 }
+                String otherPlayerID = puzzle.getHostId();
+                puzzle.addPlayer(clientID);
+                Session host = sessions.get(otherPlayerID);
+                Session joiner = sessions.get(clientID);
+                if(host != null) {
+                    host.join(puzzle, clientID);
+                    lobby.unsubscribe(host);
+                }
+                if(joiner != null) {
+                    joiner.join(puzzle, otherPlayerID);
+                    lobby.unsubscribe(joiner);
+                }
+                lobby.changed();
+                MoveResult snapshot = puzzle.call(board -> new MoveResult(board, board.getVersion(), true, false, "", false));
+                String header = "PLAY " + matchID + " " + clientID + " ok";
+                if(host != null) {
+                    host.getConnection().send(snapshot.snapshotFor(header, deltaClients.contains(otherPlayerID)));
+                }
+                return snapshot.snapshotFor(header, deltaClients.contains(clientID));
             }
             case "EXIT": {
                 return "QUIT";
             }
+            case "STATS": {
+                return "STATS ok " + stats.getSummary();
+            }
+            case "SYNC": {
+                String clientID = tokens[1];
+                MatchMailbox match = matchOf(clientID);
+                if(match == null) {
+                    return "SYNC " + clientID + " bad";
+                }
+                MoveResult snapshot = match.call(board -> new MoveResult(board, board.getVersion(), true, false, "", false));
+                return snapshot.snapshotFor("SYNC " + clientID + " ok", true);
+            }
             case "SHOWSCORE": {
                 String clientID = tokens[1];
-                System.out.println("showscore req");
-                String otherPlayerID = "";
-                Board board = boardByPlayer.get(clientID);
-                for(String playerID: boardByPlayer.keySet()) {
-                    Board gameBoard = boardByPlayer.get(playerID);
-                    Set<String> boardPlayers = gameBoard.getPlayerIds();
-                    if(boardPlayers.contains(clientID)) {
-                        for(String playerInGame:boardPlayers) {
-                            if(!playerInGame.equals(clientID)) {
-                                otherPlayerID = playerInGame;
-                            }
-                        }
-                    }
+                Session session = sessions.get(clientID);
+                String opponentID = opponentOf(session);
+                MatchMailbox match = session.getMatch();
+                String scores = match.call(board -> "SHOWSCORE " + clientID + " " + board.getScore(clientID) + " " + opponentID + " " + board.getScore(opponentID));
+                Connection otherOut = connectionOf(opponentID);
+                if(otherOut != null) {
+                    otherOut.send(scores);
                 }
-                PrintWriter otherOut = socketByPlayer.get(otherPlayerID);
-                otherOut.println("SHOWSCORE " + clientID + " " + board.getScore(clientID) + " " + otherPlayerID + " " + board.getScore(otherPlayerID));
-                return "SHOWSCORE " + clientID + " " + board.getScore(clientID) + " " + otherPlayerID + " " + board.getScore(otherPlayerID);
+                return scores;
             }
             case "TRY": {
-                String matchID = "";
                 String clientID = tokens[1];
-                for(String gameID: gameIdsByPlayer.keySet()) {
-                    List<String> players = gameIdsByPlayer.get(gameID);
-                    if(players.contains(clientID)) {
-                        matchID = gameID;
-                    }
-                }
                 String wordID = tokens[2];
                 String attempt = tokens[3];
-                Board board = boardByPlayer.get(clientID);
-                String otherPlayerID = "";
-                for(String playerID: boardByPlayer.keySet()) {
-                    Board gameBoard = boardByPlayer.get(playerID);
-                    Set<String> boardPlayers = gameBoard.getPlayerIds();
-                    if(boardPlayers.contains(clientID)) {
-                        for(String playerInGame:boardPlayers) {
-                            if(!playerInGame.equals(clientID)) {
-                                otherPlayerID = playerInGame;
-                            }
-                        }
-                    }
-                }
-                PrintWriter playerOneOut = socketByPlayer.get(otherPlayerID);
-                synchronized(board) {
+                Session session = sessions.get(clientID);
+                String opponentID = opponentOf(session);
+                MatchMailbox match = session.getMatch();
+                String gameID = match.getMatchId();
+                Connection playerOneOut = connectionOf(opponentID);
+                boolean moverDelta = deltaClients.contains(clientID);
+                boolean opponentDelta = deltaClients.contains(opponentID);
+                MoveResult move = match.call(board -> {
+                    int base = board.getVersion();
                     String result = board.tryWord(Integer.valueOf(wordID),  attempt,  clientID);
-                    String returnStr =  "TRY " + clientID +  " " + wordID + attempt;
                     if(result.equals("failure")) {
-                        return "TRY " + matchID + " " + clientID + " ok-->" + board.getClientString() + board.tryOrChallengeString();
-                        //return returnStr + " bad";
+                        return new MoveResult(board, base, !moverDelta, moverDelta, "", false);
                     } else {
-                        String response = "TRY " + matchID + " " + clientID + " ok-->" + board.getClientString() + board.tryOrChallengeString();
+                        String suffix = "";
                         if(board.isDone()) {
-                            response = response + "\nSHOWSCORE " + clientID + " " + board.getScore(clientID) + " " + otherPlayerID + " " + board.getScore(otherPlayerID);
+                            suffix = "\nSHOWSCORE " + clientID + " " + board.getScore(clientID) + " " + opponentID + " " + board.getScore(opponentID);
                         }
-                        playerOneOut.println(response);
-                        return response;
-                        //return returnStr + " " + clientID + " ok";
+                        return new MoveResult(board, base, !moverDelta || !opponentDelta, moverDelta || opponentDelta, suffix, true);
                     }
+                });
+                String header = "TRY " + gameID + " " + clientID + " ok";
+                if(move.broadcast && playerOneOut != null) {
+                    playerOneOut.send(move.responseFor(header, opponentDelta));
                 }
+                return move.responseFor(header, moverDelta);
             }
             case "CHALLENGE": {
-                String matchID = "";
                 String clientID = tokens[1];
-                for(String gameID: gameIdsByPlayer.keySet()) {
-                    List<String> players = gameIdsByPlayer.get(gameID);
-                    if(players.contains(clientID)) {
-                        matchID = gameID;
-                    }
-                }
                 String wordID = tokens[2];
                 String attempt = tokens[3];
-                Board board = boardByPlayer.get(clientID);
-                String otherPlayerID = "";
-                for(String playerID: boardByPlayer.keySet()) {
-                    Board gameBoard = boardByPlayer.get(playerID);
-                    Set<String> boardPlayers = gameBoard.getPlayerIds();
-                    if(boardPlayers.contains(clientID)) {
-                        for(String playerInGame:boardPlayers) {
-                            if(!playerInGame.equals(clientID)) {
-                                otherPlayerID = playerInGame;
-                            }
-                        }
-                    }
-                }
-                PrintWriter playerOneOut = socketByPlayer.get(otherPlayerID);
-                synchronized(board) {
+                Session session = sessions.get(clientID);
+                String opponentID = opponentOf(session);
+                MatchMailbox match = session.getMatch();
+                String gameID = match.getMatchId();
+                Connection playerOneOut = connectionOf(opponentID);
+                boolean moverDelta = deltaClients.contains(clientID);
+                boolean opponentDelta = deltaClients.contains(opponentID);
+                MoveResult move = match.call(board -> {
+                    int base = board.getVersion();
                     String result = board.challengeWord(Integer.valueOf(wordID),  attempt,  clientID);
-                    String returnStr =  "CHALLENGE " + clientID +  " " + wordID + attempt;
                     if(result.equals("operation failed")) {
-                        return "CHALLENGE " + matchID + " " + clientID + " ok-->" + board.getClientString() + board.tryOrChallengeString();
-                        //return returnStr + " bad";
+                        return new MoveResult(board, base, !moverDelta, moverDelta, "", false);
                     } else if(result.equals("YourWordCorrect Confirmed 2")){
-                        String response = "CHALLENGE " + matchID + " " + clientID + " ok-->" + board.getClientString() + board.tryOrChallengeString();
+                        String suffix = "";
                         if(board.isDone()) {
-                            response = response + "\nSHOWSCORE " + clientID + " " + board.getScore(clientID) + " " + otherPlayerID + " " + board.getScore(otherPlayerID);
+                            suffix = "\nSHOWSCORE " + clientID + " " + board.getScore(clientID) + " " + opponentID + " " + board.getScore(opponentID);
                         }
-                        playerOneOut.println(response);
-                        return response;
-                        //return returnStr + " granted";
+                        return new MoveResult(board, base, !moverDelta || !opponentDelta, moverDelta || opponentDelta, suffix, true);
                     } else {
-                        playerOneOut.println("CHALLENGE " + matchID + " " + clientID + " ok-->" + board.getClientString()+ board.tryOrChallengeString());
-                        return "CHALLENGE " + matchID + " " + clientID + " ok-->" + board.getClientString() + board.tryOrChallengeString();
-                        //return returnStr + " failed";
+                        return new MoveResult(board, base, !moverDelta || !opponentDelta, moverDelta || opponentDelta, "", true);
                     }
+                });
+                String header = "CHALLENGE " + gameID + " " + clientID + " ok";
+                if(move.broadcast && playerOneOut != null) {
+                    playerOneOut.send(move.responseFor(header, opponentDelta));
                 }
+                return move.responseFor(header, moverDelta);
             }
             /*case "WAIT": {
                 String clientID = tokens[1];
@@ -0,0 +1,235 @@
+package crossword;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms of a server, readable over JMX (see ServerStatsMXBean) and
+ * with the STATS request. Recording a request costs a few atomic increments; gauges that would
+ * need bookkeeping on every request, such as the number of active matches, are computed by the
+ * server only when they are read.
+ */
+class ServerStats implements ServerStatsMXBean {
+    // AF(latencies, errors, connections, admission, gauges) = statistics of a server that has handled
+    //              latencies.get(c).count() requests of command c, errors.get(c) of them failing, has
+    //              connections clients connected, admits connections through admission, and reports
+    //              its other gauges through the suppliers
+    // RI: latencies and errors have the same keys, the commands of COMMANDS plus PARSE in latencies
+    // Thread Safety: the maps are never modified after construction and hold threadsafe values;
+    //      connections is atomic; admission and the suppliers are threadsafe.
+
+    /** Name the statistics are registered under with the platform MBean server. */
+    public static final String OBJECT_NAME = "crossword:type=ServerStats";
+    /** Commands whose requests are timed; others are not recorded. */
+    static final List<String> COMMANDS = List.of("START", "NEW", "PLAY", "TRY", "CHALLENGE", "SHOWSCORE", "SYNC", "EXIT", "STATS");
+    /** Key of the puzzle parse times among the latencies. */
+    static final String PARSE = "parse";
+
+    private static final Log LOG = Log.named("server");
+
+    private final Map<String, LatencyHistogram> latencies;
+    private final Map<String, AtomicLong> errors;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AdmissionLimiter admission;
+    private final IntSupplier waitingMatches;
+    private final IntSupplier activeMatches;
+    private final LongSupplier queuedBytes;
+
+    /**
+     * @param waitingMatches number of matches waiting for a second player
+     * @param activeMatches number of matches that at least one connected player is in
+     * @param queuedBytes bytes queued for clients and not yet written
+     * @param admission the limiter whose admission counters are reported
+     */
+    public ServerStats(IntSupplier waitingMatches, IntSupplier activeMatches, LongSupplier queuedBytes,
+            AdmissionLimiter admission) {
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        Map<String, AtomicLong> errors = new HashMap<>();
+        for (String command : COMMANDS) {
+            latencies.put(command, new LatencyHistogram());
+            errors.put(command, new AtomicLong());
+        }
+        latencies.put(PARSE, new LatencyHistogram());
+        errors.put(PARSE, new AtomicLong());
+        this.latencies = Collections.unmodifiableMap(latencies);
+        this.errors = Collections.unmodifiableMap(errors);
+        this.waitingMatches = waitingMatches;
+        this.activeMatches = activeMatches;
+        this.queuedBytes = queuedBytes;
+        this.admission = admission;
+    }
+
+    /**
+     * Register with the platform MBean server, replacing the statistics of an earlier server
+     * in the same JVM. Failures are logged, the server runs without JMX.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            LOG.warn("cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    public void connectionOpened() {
+        connections.incrementAndGet();
+    }
+
+    public void connectionClosed() {
+        connections.decrementAndGet();
+    }
+
+    /**
+     * @param command first token of the request
+     * @param nanos time taken to handle it
+     * @param failed true if handling it threw an exception
+     */
+    public void recordRequest(String command, long nanos, boolean failed) {
+        LatencyHistogram histogram = latencies.get(command);
+        if (histogram == null || command.equals(PARSE)) {
+            return;
+        }
+        histogram.record(nanos);
+        if (failed) {
+            errors.get(command).incrementAndGet();
+        }
+    }
+
+    /**
+     * @param nanos time taken to parse one puzzle
+     * @param failed true if the puzzle could not be parsed
+     */
+    public void recordParse(long nanos, boolean failed) {
+        latencies.get(PARSE).record(nanos);
+        if (failed) {
+            errors.get(PARSE).incrementAndGet();
+        }
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return connections.get();
+    }
+
+    @Override
+    public long getAdmittedConnections() {
+        return admission.accepted();
+    }
+
+    @Override
+    public long getRefusedConnections() {
+        return admission.rejected();
+    }
+
+    @Override
+    public long getAdmittedActive() {
+        return admission.active();
+    }
+
+    @Override
+    public int getWaitingMatches() {
+        return waitingMatches.getAsInt();
+    }
+
+    @Override
+    public int getActiveMatches() {
+        return activeMatches.getAsInt();
+    }
+
+    @Override
+    public long getQueuedBytes() {
+        return queuedBytes.getAsLong();
+    }
+
+    @Override
+    public Map<String, Long> getRequestCounts() {
+        return byCommand(LatencyHistogram::count);
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String command : latencies.keySet()) {
+            counts.put(command, errors.get(command).get());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getP50Micros() {
+        return byCommand(histogram -> histogram.percentile(0.5) / 1000);
+    }
+
+    @Override
+    public Map<String, Long> getP99Micros() {
+        return byCommand(histogram -> histogram.percentile(0.99) / 1000);
+    }
+
+    @Override
+    public Map<String, Long> getP999Micros() {
+        return byCommand(histogram -> histogram.percentile(0.999) / 1000);
+    }
+
+    @Override
+    public Map<String, Long> getMaxMicros() {
+        return byCommand(histogram -> histogram.max() / 1000);
+    }
+
+    private Map<String, Long> byCommand(ToLongFunction<LatencyHistogram> statistic) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            values.put(entry.getKey(), statistic.applyAsLong(entry.getValue()));
+        }
+        return values;
+    }
+
+    /**
+     * @return the gauges, then for every command handled at least once its count, errors and
+     *         latencies in microseconds, e.g.
+     *         "connections=2 admitted=0 refused=0 admittedActive=0 waiting=0 matches=1 queued=0
+     *         | TRY n=10 err=0 p50=41 p99=180 p999=180 max=180"
+     */
+    @Override
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder()
+                .append("connections=").append(getActiveConnections())
+                .append(" admitted=").append(getAdmittedConnections())
+                .append(" refused=").append(getRefusedConnections())
+                .append(" admittedActive=").append(getAdmittedActive())
+                .append(" waiting=").append(getWaitingMatches())
+                .append(" matches=").append(getActiveMatches())
+                .append(" queued=").append(getQueuedBytes());
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (histogram.count() == 0) {
+                continue;
+            }
+            summary.append(" | ").append(entry.getKey())
+                   .append(" n=").append(histogram.count())
+                   .append(" err=").append(errors.get(entry.getKey()).get())
+                   .append(" p50=").append(histogram.percentile(0.5) / 1000)
+                   .append(" p99=").append(histogram.percentile(0.99) / 1000)
+                   .append(" p999=").append(histogram.percentile(0.999) / 1000)
+                   .append(" max=").append(histogram.max() / 1000);
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package crossword;
+
+import java.util.Map;
+
+/**
+ * Management interface of a running server, registered with the platform MBean server as
+ * crossword:type=ServerStats. Latencies are the time handleRequest takes for each command,
+ * in microseconds, keyed by command name; parse latencies are keyed by "parse".
+ */
+public interface ServerStatsMXBean {
+
+    /** @return number of client connections currently open */
+    public int getActiveConnections();
+
+    /** @return number of connections admitted under the connection limit (VIRTUAL mode) */
+    public long getAdmittedConnections();
+
+    /** @return number of connections refused because the connection limit was reached (VIRTUAL mode) */
+    public long getRefusedConnections();
+
+    /** @return number of admitted connections currently being served (VIRTUAL mode) */
+    public long getAdmittedActive();
+
+    /** @return number of matches waiting for a second player */
+    public int getWaitingMatches();
+
+    /** @return number of matches that at least one connected player is in */
+    public int getActiveMatches();
+
+    /** @return bytes queued for clients and not yet written to their sockets */
+    public long getQueuedBytes();
+
+    /** @return number of requests handled, by command */
+    public Map<String, Long> getRequestCounts();
+
+    /** @return number of requests that failed with an exception, by command */
+    public Map<String, Long> getErrorCounts();
+
+    /** @return median latency, by command */
+    public Map<String, Long> getP50Micros();
+
+    /** @return 99th percentile latency, by command */
+    public Map<String, Long> getP99Micros();
+
+    /** @return 99.9th percentile latency, by command */
+    public Map<String, Long> getP999Micros();
+
+    /** @return largest latency, by command */
+    public Map<String, Long> getMaxMicros();
+
+    /** @return everything above on one line, as sent in response to STATS */
+    public String getSummary();
+}
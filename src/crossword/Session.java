@@ -0,0 +1,77 @@
+package crossword;
+
+/**
+ * What the server knows about one connected player: the connection its messages go to, the
+ * match it is playing and its opponent in that match. ServerHelper keeps one Session per
+ * player id, so a request finds everything it needs with a single lookup.
+ */
+class Session {
+    // AF(playerId, connection, match, opponentId) = the player playerId, reachable on connection,
+    //                             playing match against opponentId; not in a match if match is null,
+    //                             and waiting for an opponent if opponentId is null
+    // RI: opponentId != null implies match != null, and opponentId is in match.getPlayerIds()
+    // Thread Safety: playerId is immutable; the other fields are volatile and each one is written
+    //      by a single request of this player or of the opponent joining its match, so readers
+    //      always see a complete value. match and opponentId are written in that order
+    //      and read in the opposite order.
+
+    private final String playerId;
+    private volatile Connection connection;
+    private volatile MatchMailbox match;
+    private volatile String opponentId;
+
+    /**
+     * @param playerId id of the player
+     * @param connection where messages to the player are sent
+     */
+    public Session(String playerId, Connection connection) {
+        this.playerId = playerId;
+        this.connection = connection;
+    }
+
+    /**
+     * @return id of the player
+     */
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * @return where messages to the player are sent
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @param connection where messages to the player are sent from now on
+     */
+    public void setConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * @return the match the player is in, or null if none
+     */
+    public MatchMailbox getMatch() {
+        return match;
+    }
+
+    /**
+     * @return id of the player's opponent, or null if the player has none yet
+     */
+    public String getOpponentId() {
+        return opponentId;
+    }
+
+    /**
+     * Enter a match, leaving any previous one.
+     * @param match the match the player is in from now on
+     * @param opponentId id of the other player of match, or null if nobody has joined yet
+     */
+    public void join(MatchMailbox match, String opponentId) {
+        this.opponentId = null;
+        this.match = match;
+        this.opponentId = opponentId;
+    }
+}
@@ -0,0 +1,168 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection backed by a blocking socket, used when each client is served by its own thread.
+ * send() only queues the message; a writer task on a shared executor drains everything queued
+ * so far and flushes it once, so a thread sending to a slow client never blocks on its socket.
+ */
+class StreamConnection implements Connection {
+    // AF(socket, pending) = the client at the other end of socket, which still has to be sent the
+    //                       messages in pending, oldest first
+    // RI: pendingBytes is the total length of the messages in pending, up to writes in progress
+    // Thread Safety: pending, pendingBytes and draining are threadsafe. out is only written by the
+    //      drain task, and at most one drain task per connection runs at a time: a task is only
+    //      submitted by the thread that sets draining from false to true. frames and closed are
+    //      volatile.
+
+    private static final int OUTPUT_BUFFER_BYTES = 16 * 1024;
+    /** How long close() lets queued messages drain before closing the socket anyway. */
+    private static final long CLOSE_LINGER_MILLIS = 1000;
+    private static final Log LOG = Log.named("server");
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final Executor writer;
+    private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingBytes = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private volatile boolean frames = false;
+    private volatile boolean closed = false;
+
+    /**
+     * @param socket socket connected to the client
+     * @param writer executor that runs the tasks writing to the socket; a task may block
+     *        for as long as the client does not read
+     * @throws IOException if the socket's output stream cannot be opened
+     */
+    public StreamConnection(Socket socket, Executor writer) throws IOException {
+        this.socket = socket;
+        this.out = new BufferedOutputStream(socket.getOutputStream(), OUTPUT_BUFFER_BYTES);
+        this.writer = writer;
+    }
+
+    @Override
+    public void send(String line) {
+        if (closed) {
+            return;
+        }
+        byte[] bytes = encode(line);
+        pending.add(bytes);
+        if (pendingBytes.addAndGet(bytes.length) > MAX_PENDING_BYTES) {
+            LOG.warn("disconnecting slow client " + socket.getRemoteSocketAddress());
+            abort();
+            return;
+        }
+        if (draining.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    /**
+     * @return line as the client expects to read it, a text line or one frame per line
+     */
+    private byte[] encode(String line) {
+        if (!frames) {
+            return (line + "\n").getBytes(UTF_8);
+        }
+        String[] parts = line.split("\n");
+        if (parts.length == 1) {
+            return WireCodec.encode(line);
+        }
+        byte[][] encoded = new byte[parts.length][];
+        int length = 0;
+        for (int i = 0; i < parts.length; i++) {
+            encoded[i] = WireCodec.encode(parts[i]);
+            length += encoded[i].length;
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        for (byte[] part : encoded) {
+            System.arraycopy(part, 0, bytes, offset, part.length);
+            offset += part.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Write every queued message, flushing once per batch, until the queue is empty.
+     */
+    private void drain() {
+        try {
+            do {
+                for (byte[] bytes = pending.poll(); bytes != null; bytes = pending.poll()) {
+                    out.write(bytes);
+                    pendingBytes.addAndGet(-bytes.length);
+                }
+                out.flush();
+                draining.set(false);
+            } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+        } catch (IOException ioe) {
+            // the reading side notices the broken connection and cleans up
+            pending.clear();
+            draining.set(false);
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public int queuedBytes() {
+        return pendingBytes.get();
+    }
+
+    @Override
+    public void useFrames() {
+        frames = true;
+    }
+
+    /**
+     * Close the connection once the messages already queued are written, or after
+     * CLOSE_LINGER_MILLIS if the client does not read them.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long deadline = System.currentTimeMillis() + CLOSE_LINGER_MILLIS;
+        synchronized (this) {
+            for (long left = CLOSE_LINGER_MILLIS; left > 0 && (draining.get() || !pending.isEmpty());
+                    left = deadline - System.currentTimeMillis()) {
+                try {
+                    wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        abort();
+    }
+
+    /**
+     * Close the socket right away, dropping queued messages.
+     */
+    private void abort() {
+        closed = true;
+        pending.clear();
+        try {
+            socket.close();
+        } catch (IOException ioe) {
+            LOG.warn("cannot close client socket", ioe);
+        }
+    }
+}
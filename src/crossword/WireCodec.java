@@ -0,0 +1,234 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary framing of the crossword protocol, shared by ServerHelper and Client.
+ *
+ * A client asks for frames by ending its START request with BINARY. The START line and its
+ * response are plain text lines; every message after them, in both directions, is a frame:
+ * a 4-byte big-endian length followed by that many bytes, the first of which is an opcode.
+ * The most frequent messages have compact opcodes:
+ *     TRY [id] [word_id] [word_attempt]         -> TRY, string id, int word_id, string word_attempt
+ *     CHALLENGE [id] [word_id] [word_attempt]   -> CHALLENGE, same layout as TRY
+ *     SHOWSCORE [id]                            -> SHOWSCORE, string id
+ *     SHOWSCORE [id1] [score1] [id2] [score2]   -> SCORES, string id1, int score1, string id2, int score2
+ * where an int is 4 bytes big-endian and a string a 2-byte length followed by its UTF-8 bytes.
+ * Any other line, or one of the above that does not fit its layout, is sent as TEXT followed
+ * by the UTF-8 bytes of the line. A frame always carries exactly one line.
+ */
+final class WireCodec {
+
+    /** Last token of a START request asking for frames. */
+    static final String BINARY = "BINARY";
+    /** Longest frame or text line accepted before the peer is disconnected. */
+    static final int MAX_MESSAGE_BYTES = 64 * 1024;
+
+    static final byte TEXT = 0;
+    static final byte TRY = 1;
+    static final byte CHALLENGE = 2;
+    static final byte SHOWSCORE = 3;
+    static final byte SCORES = 4;
+
+    private WireCodec() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * @param tokens a request split on spaces
+     * @return true if the request is a START that switches its connection to frames
+     */
+    static boolean requestsFrames(String[] tokens) {
+        return tokens.length > 2 && tokens[0].equals("START") && tokens[tokens.length - 1].equals(BINARY);
+    }
+
+    /**
+     * @param line a request line
+     * @return true if the request is a START that switches its connection to frames
+     */
+    static boolean requestsFrames(String line) {
+        return line.startsWith("START ") && requestsFrames(line.split(" "));
+    }
+
+    /**
+     * @param line one protocol line, without a newline
+     * @return the frame carrying line, length prefix included
+     */
+    static byte[] encode(String line) {
+        String[] tokens = line.split(" ");
+        try {
+            switch (tokens[0]) {
+            case "TRY":
+            case "CHALLENGE":
+                if (tokens.length == 4) {
+                    int wordId = Integer.parseInt(tokens[2]);
+                    byte[] id = utf8(tokens[1]);
+                    byte[] attempt = utf8(tokens[3]);
+                    ByteBuffer frame = allocate(2 + id.length + 4 + 2 + attempt.length);
+                    frame.put(tokens[0].equals("TRY") ? TRY : CHALLENGE);
+                    putString(frame, id).putInt(wordId);
+                    putString(frame, attempt);
+                    return frame.array();
+                }
+                break;
+            case "SHOWSCORE":
+                if (tokens.length == 2) {
+                    byte[] id = utf8(tokens[1]);
+                    ByteBuffer frame = allocate(2 + id.length);
+                    frame.put(SHOWSCORE);
+                    putString(frame, id);
+                    return frame.array();
+                } else if (tokens.length == 5) {
+                    int score1 = Integer.parseInt(tokens[2]);
+                    int score2 = Integer.parseInt(tokens[4]);
+                    byte[] id1 = utf8(tokens[1]);
+                    byte[] id2 = utf8(tokens[3]);
+                    ByteBuffer frame = allocate(2 + id1.length + 4 + 2 + id2.length + 4);
+                    frame.put(SCORES);
+                    putString(frame, id1).putInt(score1);
+                    putString(frame, id2).putInt(score2);
+                    return frame.array();
+                }
+                break;
+            default:
+                break;
+            }
+        } catch (IllegalArgumentException e) {
+            // a number or string does not fit the compact layout, fall back to text
+        }
+        byte[] text = line.getBytes(UTF_8);
+        ByteBuffer frame = allocate(text.length);
+        frame.put(TEXT).put(text);
+        return frame.array();
+    }
+
+    /**
+     * @param body a frame without its length prefix
+     * @return the tokens of the line the frame carries, as String.split(" ") would produce them
+     * @throws IllegalArgumentException if body is not a well-formed frame
+     */
+    static String[] decodeTokens(ByteBuffer body) {
+        try {
+            byte opcode = body.get();
+            switch (opcode) {
+            case TEXT:
+                return text(body).split(" ");
+            case TRY:
+            case CHALLENGE:
+                return new String[] {opcode == TRY ? "TRY" : "CHALLENGE", getString(body),
+                        String.valueOf(body.getInt()), getString(body)};
+            case SHOWSCORE:
+                return new String[] {"SHOWSCORE", getString(body)};
+            case SCORES:
+                return new String[] {"SHOWSCORE", getString(body), String.valueOf(body.getInt()),
+                        getString(body), String.valueOf(body.getInt())};
+            default:
+                throw new IllegalArgumentException("unknown opcode " + opcode);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated frame", e);
+        }
+    }
+
+    /**
+     * @param body a frame without its length prefix
+     * @return the line the frame carries
+     * @throws IllegalArgumentException if body is not a well-formed frame
+     */
+    static String decodeLine(ByteBuffer body) {
+        if (body.get(body.position()) == TEXT) {
+            body.get();
+            return text(body);
+        }
+        return String.join(" ", decodeTokens(body));
+    }
+
+    /**
+     * Read one frame from a stream.
+     * @param in stream positioned at a frame boundary
+     * @return the frame without its length prefix, or null if the stream ended before a new frame
+     * @throws IOException if the stream fails, ends inside a frame, or the frame is too long
+     */
+    static ByteBuffer readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 1 || length > MAX_MESSAGE_BYTES) {
+            throw new IOException("bad frame length " + length);
+        }
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return ByteBuffer.wrap(body);
+    }
+
+    /**
+     * Read one newline-terminated UTF-8 line from a stream without reading past it, so the
+     * stream can switch to frames right after.
+     * @param in buffered stream
+     * @return the line without its terminator ("\n" or "\r\n"), or null if the stream ended
+     * @throws IOException if the stream fails or the line is too long
+     */
+    static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b < 0) {
+                return line.size() == 0 ? null : line.toString(UTF_8);
+            }
+            line.write(b);
+            if (line.size() > MAX_MESSAGE_BYTES) {
+                throw new IOException("line too long");
+            }
+        }
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, UTF_8);
+    }
+
+    private static ByteBuffer allocate(int payloadBytes) {
+        ByteBuffer frame = ByteBuffer.allocate(4 + 1 + payloadBytes);
+        frame.putInt(1 + payloadBytes);
+        return frame;
+    }
+
+    private static byte[] utf8(String s) {
+        byte[] bytes = s.getBytes(UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("string too long for a compact frame");
+        }
+        return bytes;
+    }
+
+    private static ByteBuffer putString(ByteBuffer frame, byte[] bytes) {
+        return frame.putShort((short)bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer body) {
+        int length = body.getShort() & 0xFFFF;
+        if (length > body.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String s = new String(body.array(), body.arrayOffset() + body.position(), length, UTF_8);
+        body.position(body.position() + length);
+        return s;
+    }
+
+    private static String text(ByteBuffer body) {
+        String s = new String(body.array(), body.arrayOffset() + body.position(), body.remaining(), UTF_8);
+        body.position(body.limit());
+        return s;
+    }
+}
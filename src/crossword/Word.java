@@ -1,5 +1,7 @@
 package crossword;
 
+import java.util.Objects;
+
 import crossword.Board.Direction;
 
 /**
@@ -13,7 +15,9 @@ public class Word implements Crossword{
      *        word.length > 0
      *        hint.length > 0
      *        pos needs to be valid
-     * AF(word, hint, number, pos, dir) = represents the word in the crossword with text word, the hint hint, the number number, the position pos, the direction dir
+     *        slot >= -1
+     * AF(word, hint, number, pos, dir, slot) = represents the word in the crossword with text word, the hint hint, the number number, the position pos, the direction dir,
+     *        stored at index slot of its Board (-1 if it has not been placed on a Board)
      * Thread Safety: All fields are private and final (immutable)
      */
 
@@ -22,6 +26,7 @@ public class Word implements Crossword{
     private final int number;
     private final Position pos;
     private final Board.Direction dir;
+    private final int slot;
     /**
      * Constructor for the Word type
      * @param word the string that this word represents
@@ -31,14 +36,34 @@ public class Word implements Crossword{
      * @param dir whether this word is a horizontal word or vertical word
      */
     public Word (String word, String hint, int number, Position pos, Board.Direction dir) {
+        this(word, hint, number, pos, dir, -1);
+    }
+    
+    private Word (String word, String hint, int number, Position pos, Board.Direction dir, int slot) {
         this.word = word;
         this.hint = hint;
         this.number = number;
         this.pos = pos;
         this.dir = dir;
+        this.slot = slot;
         assert(this.checkRep());
     }
     
+    /**
+     * @param slot index of this word on the Board it is placed on, >= 0
+     * @return a copy of this word stored at index slot of its Board
+     */
+    Word withSlot(int slot) {
+        return new Word(this.word, this.hint, this.number, this.pos, this.dir, slot);
+    }
+    
+    /**
+     * @return index of this word on its Board, or -1 if it has not been placed on a Board
+     */
+    public int getSlot() {
+        return this.slot;
+    }
+    
    
     public String returnLetter(Position pos) {
         if (this.dir== Direction.ACROSS) {
@@ -58,7 +83,8 @@ public class Word implements Crossword{
     private boolean checkRep() {
         return this.word.matches("\\w+") &&
                 this.word.length() > 0 &&
-                this.number > 0;
+                this.number > 0 &&
+                this.slot >= -1;
     }
 
     /**
@@ -145,7 +171,8 @@ public class Word implements Crossword{
     @Override
     public boolean equals(Object other) {
         return other instanceof Word && 
-                ((Word)other).getWord() == this.getWord() &&
+                ((Word)other).getSlot() == this.getSlot() &&
+                ((Word)other).getWord().equals(this.getWord()) &&
                 ((Word)other).getNum() == this.getNum() &&
                 ((Word)other).getDir() == this.getDir() &&
                 ((Word)other).getRow() == this.getRow() &&
@@ -154,6 +181,10 @@ public class Word implements Crossword{
 
     @Override
     public int hashCode() {
-        return this.getRow() + this.getCol() + this.getNum() + this.size();
+        if (this.slot >= 0) {
+            // slots are unique within a Board, so they spread that Board's words perfectly
+            return this.slot;
+        }
+        return Objects.hash(this.word, this.number, this.dir, this.getRow(), this.getCol());
     }
 }
@@ -0,0 +1,86 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class AdmissionLimiterTest {
+
+    /**
+     * Testing Partitions:
+     *      tryAdmit: below the limit, at the limit, after a release frees a permit
+     *      counters: accepted, rejected, active, peak; seen through ServerStats
+     *      threads: one, many admitting at once
+     */
+
+    // This covers admitting up to the limit, refusing past it, and admitting again after a release
+    @Test
+    public void admitsUpToLimit() {
+        AdmissionLimiter admission = new AdmissionLimiter(2);
+        assertTrue(admission.tryAdmit());
+        assertTrue(admission.tryAdmit());
+        assertFalse(admission.tryAdmit());
+        assertEquals(2, admission.active());
+        admission.release();
+        assertTrue(admission.tryAdmit());
+        admission.release();
+        admission.release();
+
+        assertEquals(3, admission.accepted());
+        assertEquals(1, admission.rejected());
+        assertEquals(0, admission.active());
+        assertEquals(2, admission.peak());
+    }
+
+    // This covers the counters as reported by ServerStats over JMX and STATS
+    @Test
+    public void countersInServerStats() {
+        AdmissionLimiter admission = new AdmissionLimiter(1);
+        ServerStats stats = new ServerStats(() -> 0, () -> 0, () -> 0, admission);
+        assertTrue(admission.tryAdmit());
+        assertFalse(admission.tryAdmit());
+        assertEquals(1, stats.getAdmittedConnections());
+        assertEquals(1, stats.getRefusedConnections());
+        assertEquals(1, stats.getAdmittedActive());
+        assertTrue(stats.getSummary().contains(" admitted=1 refused=1 admittedActive=1 "), stats.getSummary());
+    }
+
+    // This covers many threads admitting at once, never more than the limit
+    @Test
+    public void concurrentAdmission() throws Exception {
+        int limit = 5, threads = 20;
+        AdmissionLimiter admission = new AdmissionLimiter(limit);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (admission.tryAdmit()) {
+                    admitted.incrementAndGet();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(limit, admitted.get());
+        assertEquals(limit, admission.accepted());
+        assertEquals(threads - limit, admission.rejected());
+        assertEquals(limit, admission.peak());
+    }
+}
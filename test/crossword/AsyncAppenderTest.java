@@ -0,0 +1,57 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class AsyncAppenderTest {
+
+    /**
+     * Testing Partitions:
+     *      writer: busy, parked after the buffer emptied
+     *      producers: one, several at once
+     */
+
+    // This covers a writer parked on an empty buffer being woken by the next line, several times
+    @Test
+    public void wakesIdleWriter() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AsyncAppender appender = new AsyncAppender(new PrintStream(bytes, true, "UTF-8"), 8);
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(20);
+            assertTrue(appender.append("line " + i));
+            assertTrue(appender.flush(2000), "line " + i + " was not written");
+        }
+        assertEquals(String.join(System.lineSeparator(), "line 0", "line 1", "line 2", "line 3", "line 4")
+                + System.lineSeparator(), bytes.toString("UTF-8"));
+    }
+
+    // This covers several producers at once, every line written or counted as dropped
+    @Test
+    public void concurrentProducers() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AsyncAppender appender = new AsyncAppender(new PrintStream(bytes, true, "UTF-8"), 64);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    appender.append("x");
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertTrue(appender.flush(2000));
+        long lines = bytes.toString("UTF-8").lines().filter(line -> line.equals("x")).count();
+        assertEquals(40_000, lines + appender.dropped());
+    }
+}
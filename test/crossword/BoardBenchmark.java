@@ -0,0 +1,103 @@
+package crossword;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Micro-benchmark for the per-move cost of Board.tryWord on synthetic lattice puzzles of
+ * growing size but constant word length. Every move either fills a word or conflicts with
+ * the words crossing it, so the conflict removal path is exercised on each move. Per-move
+ * latency should stay flat as the grid grows, since a move only visits the cells of the
+ * words it touches.
+ *
+ * Run with: java -cp bin:lib/parserlib.jar crossword.BoardBenchmark
+ */
+public class BoardBenchmark {
+
+    private static final int[] SIZES = {15, 51, 101, 201};
+    private static final int WORD_LENGTH = 5;
+    private static final int WARMUP_MOVES = 50_000;
+    private static final int MEASURED_MOVES = 200_000;
+
+    /**
+     * Builds an n x n lattice puzzle of WORD_LENGTH letter words: on every even row an across
+     * word starts every WORD_LENGTH + 1 columns, and on every even column a down word starts every
+     * WORD_LENGTH + 1 rows, so words keep the same length and crossings as the grid grows.
+     * @param n side of the grid, >= WORD_LENGTH
+     * @return the words of the puzzle, numbered from 1
+     */
+    static List<Word> latticeWords(int n) {
+        List<Word> words = new ArrayList<>();
+        int num = 1;
+        for (int row = 0; row < n; row += 2) {
+            for (int col = 0; col + WORD_LENGTH <= n; col += WORD_LENGTH + 1) {
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < WORD_LENGTH; i++) {
+                    text.append(letterAt(row, col + i));
+                }
+                words.add(new Word(text.toString(), "across", num++, new Position(row, col), Board.Direction.ACROSS));
+            }
+        }
+        for (int col = 0; col < n; col += 2) {
+            for (int row = 0; row + WORD_LENGTH <= n; row += WORD_LENGTH + 1) {
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < WORD_LENGTH; i++) {
+                    text.append(letterAt(row + i, col));
+                }
+                words.add(new Word(text.toString(), "down", num++, new Position(row, col), Board.Direction.DOWN));
+            }
+        }
+        return words;
+    }
+
+    private static char letterAt(int row, int col) {
+        return (char)('a' + (row * 7 + col * 3) % 26);
+    }
+
+    /**
+     * @param word a word of the puzzle
+     * @return a guess of the right length that differs from word in every letter
+     */
+    private static String wrongGuess(Word word) {
+        StringBuilder guess = new StringBuilder();
+        for (char c : word.getWord().toCharArray()) {
+            guess.append((char)('a' + (c - 'a' + 1) % 26));
+        }
+        return guess.toString();
+    }
+
+    private static long run(Board board, List<Word> words, List<String> wrong, int moves) {
+        long checksum = 0;
+        for (int i = 0; i < moves; i++) {
+            int w = i % words.size();
+            Word word = words.get(w);
+            String guess = (i / words.size()) % 2 == 0 ? word.getWord() : wrong.get(w);
+            checksum += board.tryWord(word.getNum(), guess, (i & 1) == 0 ? "p1" : "p2").length();
+        }
+        return checksum;
+    }
+
+    /**
+     * Prints the average tryWord latency for each grid size.
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        System.out.println("grid      words   ns/move");
+        for (int n : SIZES) {
+            List<Word> words = latticeWords(n);
+            List<String> wrong = new ArrayList<>();
+            for (Word word : words) {
+                wrong.add(wrongGuess(word));
+            }
+            Board board = new Board("\"Lattice\"", "\"synthetic\"", words);
+            board.addPlayer("p1");
+            board.addPlayer("p2");
+            long checksum = run(board, words, wrong, WARMUP_MOVES);
+            long start = System.nanoTime();
+            checksum += run(board, words, wrong, MEASURED_MOVES);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%3dx%-3d %7d %9.1f   (checksum %d)",
+                    n, n, words.size(), (double)elapsed / MEASURED_MOVES, checksum));
+        }
+    }
+}
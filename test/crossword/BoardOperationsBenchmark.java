@@ -0,0 +1,214 @@
+package crossword;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Benchmark suite for the Board hot path: parsing (by FastCrosswordParser and by parserlib),
+ * building a puzzle template (which checks consistency), making a Board for a match, tryWord,
+ * challengeWord, isDone, getClientString and tryOrChallengeString, on the shipped puzzles and on
+ * synthetic lattice grids (see BoardBenchmark.latticeWords).
+ *
+ * Each operation is run in a loop for WARMUP_MILLIS so the JIT settles, then in BATCHES timed
+ * batches sized to take about BATCH_MILLIS each. The median and the fastest batch are reported
+ * in nanoseconds per operation; a median far above the fastest batch means the numbers are
+ * noisy on this machine. Every result is folded into a checksum so the JIT cannot drop the work.
+ *
+ * Run with: java -cp bin:lib/parserlib.jar crossword.BoardOperationsBenchmark [filter]
+ * where filter, if given, keeps only the fixtures and operations whose name contains it.
+ */
+public class BoardOperationsBenchmark {
+
+    private static final String[] SHIPPED = {"oneWord", "twoWords", "threeWords", "simple"};
+    private static final int[] LATTICES = {51, 101};
+    private static final long WARMUP_MILLIS = 500;
+    private static final long BATCH_MILLIS = 100;
+    private static final int BATCHES = 7;
+
+    private static long checksum = 0;
+    private static String filter = "";
+
+    /**
+     * A puzzle to run the operations on, with its text and its words.
+     */
+    private static class Fixture {
+        private final String name;
+        private final String text;
+        private final List<Word> words;
+        private final PuzzleTemplate template;
+
+        private Fixture(String name, String text) throws Exception {
+            this.name = name;
+            this.text = text;
+            Board board = (Board)CrosswordParser.parse(text);
+            this.template = board.getTemplate();
+            this.words = Arrays.asList(template.words());
+        }
+    }
+
+    /**
+     * @param n side of the lattice
+     * @return the text of a puzzle file describing BoardBenchmark.latticeWords(n)
+     */
+    static String latticeText(int n) {
+        StringBuilder text = new StringBuilder(">> \"Lattice" + n + "\" \"synthetic lattice\"\n\n");
+        for (Word word : BoardBenchmark.latticeWords(n)) {
+            text.append('(').append(word.getWord()).append(", \"").append(word.getHint()).append("\", ")
+                .append(word.getDir()).append(", ").append(word.getRow())
+                .append(", ").append(word.getCol()).append(")\n");
+        }
+        return text.toString();
+    }
+
+    /**
+     * @param word a word of the puzzle
+     * @param shift letters to move every letter of word by, in [1, 25]
+     * @return a guess of the right length that differs from word in every letter
+     */
+    private static String shifted(Word word, int shift) {
+        StringBuilder guess = new StringBuilder();
+        for (char c : word.getWord().toCharArray()) {
+            guess.append(c == '-' ? c : (char)('a' + (c - 'a' + shift) % 26));
+        }
+        return guess.toString();
+    }
+
+    private static Board newBoard(Fixture fixture) {
+        Board board = fixture.template.newBoard();
+        board.addPlayer("p1");
+        board.addPlayer("p2");
+        return board;
+    }
+
+    /**
+     * Time op and print how long one call takes.
+     * @param fixture fixture op runs on
+     * @param operation name of op
+     * @param op the operation, returning a value that depends on its work
+     */
+    private static void measure(Fixture fixture, String operation, LongSupplier op) {
+        if (!(fixture.name + " " + operation).contains(filter)) {
+            return;
+        }
+        long warmupEnd = System.nanoTime() + WARMUP_MILLIS * 1_000_000;
+        long calls = 0;
+        while (System.nanoTime() < warmupEnd) {
+            checksum += op.getAsLong();
+            calls++;
+        }
+        long batchSize = Math.max(1, calls * BATCH_MILLIS / WARMUP_MILLIS);
+        double[] nanosPerCall = new double[BATCHES];
+        for (int b = 0; b < BATCHES; b++) {
+            long start = System.nanoTime();
+            for (long i = 0; i < batchSize; i++) {
+                checksum += op.getAsLong();
+            }
+            nanosPerCall[b] = (double)(System.nanoTime() - start) / batchSize;
+        }
+        Arrays.sort(nanosPerCall);
+        System.out.println(String.format("%-12s %-34s %14.1f %14.1f",
+                fixture.name, operation, nanosPerCall[BATCHES / 2], nanosPerCall[0]));
+    }
+
+    private static void runAll(Fixture fixture) throws Exception {
+        List<Word> words = fixture.words;
+        List<String> wrong = new ArrayList<>();
+        List<String> otherWrong = new ArrayList<>();
+        for (Word word : words) {
+            wrong.add(shifted(word, 1));
+            otherWrong.add(shifted(word, 2));
+        }
+        int[] next = {0};
+
+        measure(fixture, "CrosswordParser.parse", () -> {
+            try {
+                return ((Board)CrosswordParser.parse(fixture.text)).getCellString().length();
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        measure(fixture, "CrosswordParser.parseWithParserlib", () -> {
+            try {
+                return ((Board)CrosswordParser.parseWithParserlib(fixture.text)).getCellString().length();
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        measure(fixture, "PuzzleTemplate (consistency)", () -> new PuzzleTemplate(fixture.template.getName(),
+                fixture.template.getDescription(), words).getCellString().length());
+        measure(fixture, "newBoard", () -> newBoard(fixture).getVersion());
+
+        // alternately fill every word correctly and then wrongly, so each move also clears the
+        // guesses crossing it
+        Board tries = newBoard(fixture);
+        measure(fixture, "tryWord", () -> {
+            int i = next[0]++;
+            int w = i % words.size();
+            String guess = (i / words.size()) % 2 == 0 ? words.get(w).getWord() : wrong.get(w);
+            return tries.tryWord(words.get(w).getNum(), guess, (i & 1) == 0 ? "p1" : "p2").length();
+        });
+
+        // p1 fills a word wrongly and p2 challenges it with another wrong word, which clears it
+        // again, so the board stays in the same state
+        Board challenges = newBoard(fixture);
+        measure(fixture, "tryWord + challengeWord (clears)", () -> {
+            int w = next[0]++ % words.size();
+            int id = words.get(w).getNum();
+            challenges.tryWord(id, wrong.get(w), "p1");
+            return challenges.challengeWord(id, otherWrong.get(w), "p2").length();
+        });
+        // p1 challenging its own word is refused before any work
+        Board refused = newBoard(fixture);
+        for (int w = 0; w < words.size(); w++) {
+            refused.tryWord(words.get(w).getNum(), wrong.get(w), "p1");
+        }
+        measure(fixture, "challengeWord (refused)", () -> {
+            int w = next[0]++ % words.size();
+            return refused.challengeWord(words.get(w).getNum(), otherWrong.get(w), "p1").length();
+        });
+
+        // a board half filled in, for the read-only operations
+        Board half = newBoard(fixture);
+        for (int w = 0; w < words.size(); w += 2) {
+            half.tryWord(words.get(w).getNum(), words.get(w).getWord(), "p1");
+        }
+        measure(fixture, "isDone", () -> half.isDone() ? 1 : 0);
+        measure(fixture, "getClientString (unchanged)", () -> half.getClientString().length());
+        measure(fixture, "tryOrChallengeString", () -> half.tryOrChallengeString().length());
+        Board moving = newBoard(fixture);
+        measure(fixture, "tryWord + getClientString", () -> {
+            int i = next[0]++;
+            int w = i % words.size();
+            String guess = (i / words.size()) % 2 == 0 ? words.get(w).getWord() : wrong.get(w);
+            moving.tryWord(words.get(w).getNum(), guess, "p1");
+            return moving.getClientString().length();
+        });
+    }
+
+    /**
+     * Prints the time per call of every operation on every fixture.
+     * @param args optional filter on "fixture operation"
+     * @throws Exception if a puzzle cannot be read or parsed
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            filter = args[0];
+        }
+        List<Fixture> fixtures = new ArrayList<>();
+        for (String name : SHIPPED) {
+            fixtures.add(new Fixture(name, Files.readString(Path.of("puzzles", name + ".puzzle"))));
+        }
+        for (int n : LATTICES) {
+            fixtures.add(new Fixture("lattice" + n, latticeText(n)));
+        }
+        System.out.println(String.format("%-12s %-34s %14s %14s", "fixture", "operation", "median ns/op", "best ns/op"));
+        for (Fixture fixture : fixtures) {
+            runAll(fixture);
+        }
+        System.out.println("(checksum " + checksum + ")");
+    }
+}
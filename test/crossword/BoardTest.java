@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
@@ -163,6 +164,63 @@ public class BoardTest {
                     e.printStackTrace();
                 }
            }
+
+    // This test covers isDone going back to false when a correct letter is overwritten
+    @Test
+    public void puzzleDoneUndone() throws IOException, UnableToParseException {
+        File simplePuzzle = new File("puzzles/threeWords.puzzle");
+        String puzzleStr = Files.readString(simplePuzzle.toPath());
+        Board board = (Board)CrosswordParser.parse(puzzleStr);
+        board.addPlayer("Test");
+        board.addPlayer("Test2");
+        board.tryWord(1, "cat", "Test");
+        board.tryWord(2, "mat", "Test");
+        board.tryWord(3, "car", "Test");
+        assertFalse(board.isDone());
+        assertTrue(board.tryWord(4, "tax", "Test").contains("DONE"));
+        assertTrue(board.isDone());
+        assertTrue(board.tryWord(4, "tap", "Test").contains("INCOMPLETE"));
+        assertFalse(board.isDone());
+        board.tryWord(4, "tax", "Test");
+        assertTrue(board.isDone());
+    }
+
+    // This test covers two matches on the same puzzle template not sharing any state
+    @Test
+    public void templateBoardsIndependent() throws IOException, UnableToParseException {
+        File simplePuzzle = new File("puzzles/threeWords.puzzle");
+        String puzzleStr = Files.readString(simplePuzzle.toPath());
+        PuzzleTemplate template = ((Board)CrosswordParser.parse(puzzleStr)).getTemplate();
+        Board first = template.newBoard();
+        Board second = template.newBoard();
+        first.addPlayer("Test");
+        second.addPlayer("Test2");
+        first.tryWord(1, "cat", "Test");
+        assertTrue(first.getCharacterString().contains("charc (0,1)"));
+        assertEquals("Characters ", second.getCharacterString());
+        assertEquals(first.getHints(), second.getHints());
+        assertEquals(Set.of("Test2"), second.getPlayerIds());
+    }
+
+    // This test covers the version and delta string after successful, failed and clearing moves
+    @Test
+    public void deltaAfterMoves() throws IOException, UnableToParseException {
+        File simplePuzzle = new File("puzzles/threeWords.puzzle");
+        String puzzleStr = Files.readString(simplePuzzle.toPath());
+        Board board = (Board)CrosswordParser.parse(puzzleStr);
+        board.addPlayer("Test");
+        board.addPlayer("Test2");
+        assertEquals(0, board.getVersion());
+        board.tryWord(1, "cab", "Test");
+        assertEquals(1, board.getVersion());
+        assertEquals("Characters charc (0,1) chara (1,1) charb (2,1) ", board.getDeltaString());
+        board.tryWord(1, "ca", "Test"); // wrong length, nothing changes
+        assertEquals(1, board.getVersion());
+        assertEquals("Characters ", board.getDeltaString());
+        board.challengeWord(1, "cub", "Test2"); // wrong challenge clears the word
+        assertEquals(2, board.getVersion());
+        assertEquals("Characters char# (0,1) char# (1,1) char# (2,1) ", board.getDeltaString());
+    }
                 
                 
               
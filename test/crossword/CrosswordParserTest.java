@@ -36,7 +36,7 @@ public class CrosswordParserTest {
     public void testInconsistent() {
         Boolean val = false;
         try {
-            File puzzle = new File("puzzles/inconsistent.puzzle");
+            File puzzle = new File("puzzles/feb.puzzle");
             String puzzleStr = Files.readString(puzzle.toPath());
             //System.out.println(puzzleStr);
             Crossword cw = CrosswordParser.parse(puzzleStr);
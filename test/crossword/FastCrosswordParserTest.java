@@ -0,0 +1,226 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class FastCrosswordParserTest {
+
+    /**
+     * Testing Partitions:
+     *      layout: canonical, extra whitespace and comments where the grammar skips them,
+     *              whitespace the grammar keeps in a field, missing or repeated ")"
+     *      header: escapes in the description, [ \t\r] and comments around it, no entries
+     *      entries: one, many, numbers with leading zeros, numbers too large for an int
+     *      result: valid puzzle, inconsistent puzzle, text outside the grammar
+     *      read: whole file, file larger than the buffer, text outside the layout
+     *      CrosswordParser.parse agrees with parseWithParserlib on every input
+     */
+
+    private static final String[] CASES = {
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\"\n( cat, \"h\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\"\n(cat,  \"h\",   DOWN,  0,  1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", ACROSS , 0, 1)\n",
+        ">> \"N\" \"D\"\n(cat , \"h\", ACROSS, 0, 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\" , ACROSS, 0, 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", ACROSS, 0, 1 )\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", ACROSS, 0 , 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1)\n\n\n(dog, \"x\", ACROSS, 3, 0)\n\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1) // c\n// d\n(dog, \"x\", ACROSS, 3, 0) //e\n",
+        ">> \"N\" \"D\"\n\n(cat, \"h\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\"\n// c\n(cat, \"h\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1)\t\r\n",
+        ">> \"N\" \"D\"\n",
+        ">> \"N\" \"D\"\r\r\n",
+        ">> \"N\" \"D\"\n\n",
+        ">> \"N\" \"D\"\n//only comment\n",
+        ">> \"N\" \"D\"",
+        "\r>> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1)\n",
+        "// c >> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1)\n",
+        "\t>>\t\"N\"\t\"D\"\t//x\n(cat,\t\"h\",\tDOWN,\t0,\t1)\n",
+        ">> \"N\" \"D\"\n(cat,\n\"h\",\nDOWN,\n0,\n1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1)\n(dog, \"x\", ACROSS, 3, 0)",
+        ">> \"N\" \"D\"\n(-, \"h\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\"\n(c at, \"h\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\"\n(Cat, \"h\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", down, 0, 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1))\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1)\n)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 01, 001)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, -1, 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 99999999999)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1)//c\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1)\n/",
+        ">> \"N\" \"D\" \"E\"\n",
+        ">> \"N\" \"D\"x\n(cat, \"h\", DOWN, 0, 1)\n",
+        ">> \"N\" // c \"D\"\n(cat, \"h\", DOWN, 0, 1)\n",
+        ">> \"N\\t\" \"D\"\n(cat, \"h\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\\n\\r\\t\\\\\"\n(cat, \"\\t\\\\\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\\q\"\n(cat, \"h\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\\\"\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"\u00e9\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1)\n(cow, \"x\", DOWN, 0, 1)\n",
+        ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1)\n(dog, \"x\", ACROSS, 0, 1)\n",
+        "",
+    };
+
+    /**
+     * @return what CrosswordParser.parse does with text: the puzzle it returns, or the class and
+     *         first line of the message of what it throws
+     */
+    private static String outcome(String text, boolean fast) {
+        try {
+            Crossword crossword = fast ? CrosswordParser.parse(text) : CrosswordParser.parseWithParserlib(text);
+            if (!(crossword instanceof Board)) {
+                return "string " + ((CrosswordString)crossword).extractText();
+            }
+            PuzzleTemplate template = ((Board)crossword).getTemplate();
+            StringBuilder outcome = new StringBuilder(template.getName()).append(' ').append(template.getDescription());
+            for (Word word : template.words()) {
+                outcome.append('\n').append(word.getNum()).append(' ').append(word.getWord()).append(' ')
+                       .append(word.getHint()).append(' ').append(word.getDir()).append(' ')
+                       .append(word.getRow()).append(' ').append(word.getCol());
+            }
+            return outcome.toString();
+        } catch (Throwable e) {
+            return e.getClass().getName() + ": " + String.valueOf(e.getMessage()).lines().findFirst().orElse("");
+        }
+    }
+
+    private static void assertSameOutcome(String text) {
+        assertEquals(outcome(text, false), outcome(text, true), text);
+    }
+
+    // This covers every partition of layout, header and entries
+    @Test
+    public void sameOutcomeAsParserlib() {
+        for (String text : CASES) {
+            assertSameOutcome(text);
+        }
+    }
+
+    // This covers the shipped puzzles, which the hand-written parser reads without falling back,
+    // and the inconsistent feb.puzzle, which it rejects as parserlib does
+    @Test
+    public void shippedPuzzles() throws Exception {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get("puzzles"), "*.puzzle")) {
+            for (Path file : files) {
+                String text = Files.readString(file);
+                assertSameOutcome(text);
+                if (!file.endsWith("feb.puzzle")) {
+                    assertNotNull(FastCrosswordParser.parse(text), file.toString());
+                }
+            }
+        }
+        String feb = Files.readString(Paths.get("puzzles", "feb.puzzle"));
+        assertThrows(IllegalArgumentException.class, () -> FastCrosswordParser.parse(feb));
+    }
+
+    // This covers generated puzzles, and random edits of them that mostly fall outside the grammar
+    @Test
+    public void generatedPuzzles() {
+        Random random = new Random(23);
+        List<String> pieces = List.of(" ", "\t", "\r", "\n", "//c\n", ",", ")", "(", "\"", "\\", "0", "a", "DOWN");
+        for (int i = 0; i < 200; i++) {
+            StringBuilder text = new StringBuilder(">> \"G" + i + "\" \"generated\\n\"\n");
+            int words = 1 + random.nextInt(6);
+            for (int w = 0; w < words; w++) {
+                boolean across = random.nextBoolean();
+                text.append("(w").append((char)('a' + random.nextInt(26))).append(", \"clue ").append(w)
+                    .append("\", ").append(across ? "ACROSS" : "DOWN").append(", ")
+                    .append(across ? 2 * w : 0).append(", ").append(across ? 0 : 2 * w).append(")\n");
+            }
+            for (int edits = random.nextInt(3); edits > 0; edits--) {
+                int at = random.nextInt(text.length() + 1);
+                if (random.nextBoolean() && at < text.length()) {
+                    text.deleteCharAt(at);
+                } else {
+                    text.insert(at, pieces.get(random.nextInt(pieces.size())));
+                }
+            }
+            assertSameOutcome(text.toString());
+        }
+    }
+
+    /** Reads at most 7 characters at a time, so tokens straddle the refills of the parser's buffer. */
+    private static class TrickleReader extends Reader {
+        private final Reader in;
+
+        private TrickleReader(String text) {
+            this.in = new StringReader(text);
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) throws IOException {
+            return in.read(buf, off, Math.min(len, 7));
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** Collects what a read tells its listener. */
+    private static class Collector implements FastCrosswordParser.Listener {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void header(String name, String description) {
+            events.add(name + " " + description);
+        }
+
+        @Override
+        public void entry(Word word, int line, int column) {
+            events.add(line + ":" + column + " " + word.getNum() + " " + word.getWord() + " " + word.getHint()
+                    + " " + word.getDir() + " " + word.getRow() + " " + word.getCol());
+        }
+
+        @Override
+        public void stopped(int line, int column, String expected) {
+            events.add("stopped at " + line + ":" + column + " expecting " + expected);
+        }
+    }
+
+    // This covers a file larger than the buffer, read in small pieces, and text outside the layout
+    @Test
+    public void readInPieces() throws Exception {
+        String text = BoardOperationsBenchmark.latticeText(301);
+        Collector collector = new Collector();
+        assertTrue(FastCrosswordParser.read(new TrickleReader(text), collector));
+        Collector whole = new Collector();
+        assertTrue(FastCrosswordParser.read(new StringReader(text), whole));
+        assertEquals(collector.events, whole.events);
+        Board board = FastCrosswordParser.parse(text);
+        assertEquals(board.getTemplate().words().length + 1, collector.events.size());
+        assertEquals("\"Lattice301\" \"synthetic lattice\"", collector.events.get(0));
+        Word first = board.getTemplate().words()[0];
+        assertEquals("3:1 1 " + first.getWord() + " " + first.getHint() + " " + first.getDir() + " "
+                + first.getRow() + " " + first.getCol(), collector.events.get(1));
+
+        Collector stopped = new Collector();
+        assertFalse(FastCrosswordParser.read(new TrickleReader(
+                ">> \"N\" \"D\"\n(cat, \"h\", DOWN, 0, 1)\n  (dog , \"x\", ACROSS, 3, 0)\n"), stopped));
+        assertEquals(List.of("\"N\" \"D\"", "2:1 1 cat \"h\" DOWN 0 1", "stopped at 3:7 expecting ','"),
+                stopped.events);
+    }
+}
@@ -0,0 +1,75 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    /**
+     * Testing Partitions:
+     *      bucketOf/highestIn: small values (one bucket each), boundaries between powers of two,
+     *          largest long
+     *      percentile: empty histogram, single value, skewed distribution, fraction 0 and 1
+     *      record: negative value
+     */
+
+    // This covers every bucket holding a contiguous range that its bound ends
+    @Test
+    public void bucketsAreContiguous() {
+        long previous = -1;
+        for (int bucket = 0; bucket <= LatencyHistogram.bucketOf(Long.MAX_VALUE); bucket++) {
+            long highest = LatencyHistogram.highestIn(bucket);
+            assertTrue(highest > previous, "bucket " + bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(previous + 1));
+            assertEquals(bucket, LatencyHistogram.bucketOf(highest));
+            previous = highest;
+            if (highest == Long.MAX_VALUE) {
+                break;
+            }
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    // This covers the precision of large values
+    @Test
+    public void relativeErrorIsSmall() {
+        for (long value = 64; value > 0 && value < Long.MAX_VALUE / 2; value = value * 3 + 7) {
+            long highest = LatencyHistogram.highestIn(LatencyHistogram.bucketOf(value));
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 32, "value " + value);
+        }
+    }
+
+    // This covers percentiles of an empty histogram and of a skewed distribution
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.99));
+        for (int i = 0; i < 990; i++) {
+            histogram.record(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1_000_000);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(10, histogram.percentile(0));
+        assertEquals(10, histogram.percentile(0.5));
+        assertEquals(10, histogram.percentile(0.99));
+        long p999 = histogram.percentile(0.999);
+        assertTrue(p999 >= 1_000_000 && p999 <= 1_000_000 * 33 / 32);
+        assertEquals(1_000_000, histogram.percentile(1));
+        assertEquals(1_000_000, histogram.max());
+        assertEquals((990 * 10 + 10 * 1_000_000) / 1000.0, histogram.mean(), 1e-9);
+    }
+
+    // This covers a negative duration, as a clock going backwards could produce
+    @Test
+    public void negativeRecordedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.percentile(0.5));
+        assertEquals(0, histogram.max());
+    }
+}
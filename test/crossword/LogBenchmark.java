@@ -0,0 +1,116 @@
+package crossword;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Throughput of the TRY request path with each way of logging the request line: a synchronous
+ * println on an autoflushing stream (how the server used to log every request), a Log at DEBUG
+ * writing through an AsyncAppender, and a Log that is OFF (the default for requests). Several
+ * threads run the path at once, each on its own board, as clients of different matches do, so
+ * the only thing they share is the log.
+ *
+ * Run with: java -cp bin:lib/parserlib.jar crossword.LogBenchmark
+ */
+public class LogBenchmark {
+
+    private static final int THREADS = 4;
+    private static final int GRID = 15;
+    private static final int REQUESTS_PER_THREAD = 120_000;
+
+    /**
+     * One TRY request as ServerHelper handles it: log the line, split it, make the move and
+     * render the response.
+     */
+    private static long request(Board board, String line, Consumer<String> log) {
+        log.accept(line);
+        String[] tokens = line.split(" ");
+        board.tryWord(Integer.valueOf(tokens[2]), tokens[3], tokens[1]);
+        return board.getClientString().length() + board.tryOrChallengeString().length();
+    }
+
+    private static List<String> requestLines(List<Word> words) {
+        List<String> lines = new ArrayList<>();
+        for (Word word : words) {
+            lines.add("TRY p1 " + word.getNum() + " " + word.getWord());
+        }
+        return lines;
+    }
+
+    /**
+     * @return requests per second over all threads
+     */
+    private static double run(PuzzleTemplate template, List<String> lines, Consumer<String> log) throws InterruptedException {
+        Thread[] threads = new Thread[THREADS];
+        long[] checksums = new long[THREADS];
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> {
+                Board board = template.newBoard();
+                board.addPlayer("p1");
+                board.addPlayer("p2");
+                long checksum = 0;
+                for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                    checksum += request(board, lines.get(i % lines.size()), log);
+                }
+                checksums[index] = checksum;
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long checksum = 0;
+        for (long c : checksums) {
+            checksum += c;
+        }
+        if (checksum == 0) {
+            throw new AssertionError("no response was rendered");
+        }
+        return THREADS * (double)REQUESTS_PER_THREAD / seconds;
+    }
+
+    private static PrintStream tempStream() throws IOException {
+        File file = File.createTempFile("crossword-log", ".txt");
+        file.deleteOnExit();
+        return new PrintStream(new FileOutputStream(file), true);
+    }
+
+    /**
+     * Prints the request throughput of each way of logging.
+     * @param args unused
+     * @throws Exception if the puzzle is inconsistent or a temporary file cannot be made
+     */
+    public static void main(String[] args) throws Exception {
+        List<Word> words = BoardBenchmark.latticeWords(GRID);
+        PuzzleTemplate template = new PuzzleTemplate("\"Lattice\"", "\"synthetic\"", words);
+        List<String> lines = requestLines(words);
+
+        PrintStream console = tempStream();
+        AsyncAppender appender = new AsyncAppender(tempStream(), 8192);
+        Log async = new Log("requests", Log.Level.DEBUG, appender);
+        Log off = new Log("requests", Log.Level.OFF, appender);
+
+        System.out.println(THREADS + " threads, " + GRID + "x" + GRID + " lattice");
+        System.out.println("logging             requests/s");
+        // run each once to warm up the JIT, then again to measure
+        for (int round = 0; round < 2; round++) {
+            double println = run(template, lines, console::println);
+            double asyncRate = run(template, lines, async::debug);
+            double offRate = run(template, lines, off::debug);
+            if (round == 1) {
+                System.out.println(String.format("println (sync)  %14.0f", println));
+                System.out.println(String.format("Log async       %14.0f   (%d lines dropped)", asyncRate, appender.dropped()));
+                System.out.println(String.format("Log off         %14.0f", offRate));
+            }
+        }
+        appender.flush(1000);
+    }
+}
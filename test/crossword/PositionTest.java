@@ -2,6 +2,9 @@ package crossword;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.jupiter.api.Test;
 
 public class PositionTest {
@@ -38,4 +41,14 @@ public class PositionTest {
         assert(pos1.equals(pos2));
         assertEquals(pos1.hashCode(),pos2.hashCode());
     }
+    
+    // This covers hashCode distinguishing positions on the same anti-diagonal
+    @Test
+    public void hashCodeAntiDiagonalTest() {
+        Set<Integer> hashes = new HashSet<>();
+        for (int row = 0; row <= 20; row++) {
+            hashes.add(new Position(row, 20 - row).hashCode());
+        }
+        assertEquals(21, hashes.size());
+    }
 }
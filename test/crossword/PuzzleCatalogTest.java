@@ -0,0 +1,82 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class PuzzleCatalogTest {
+
+    /**
+     * Testing Partitions:
+     *      scan: valid puzzles, a puzzle with a bad entry, a file without a header
+     *      template: unknown name, first lookup, cached lookup, evicted puzzle, invalid puzzle
+     *      add: pinned puzzle beyond capacity
+     */
+
+    // This covers scanning the shipped puzzles, which reads headers only
+    @Test
+    public void scanReadsHeaders() throws IOException {
+        PuzzleCatalog catalog = PuzzleCatalog.scan(Paths.get("puzzles"), 2);
+        assertEquals(Set.of("\"Easy\"", "\"Feb\"", "\"OneWord\"", "\"TwoWords\"", "\"ThreeWords\""), catalog.names());
+        assertEquals("\"An easy puzzle to get started\"", catalog.description("\"Easy\""));
+        assertEquals(0, catalog.cached());
+        assertNull(catalog.template("\"Missing\""));
+    }
+
+    // This covers parsing on first lookup, cache hits and least recently used eviction
+    @Test
+    public void cacheEvictsLeastRecentlyUsed() throws IOException {
+        PuzzleCatalog catalog = PuzzleCatalog.scan(Paths.get("puzzles"), 2);
+        int[] parsed = {0};
+        catalog.setParseListener((nanos, failed) -> parsed[0]++);
+        PuzzleTemplate easy = catalog.template("\"Easy\"");
+        assertEquals("\"Easy\"", easy.getName());
+        assertSame(easy, catalog.template("\"Easy\""));
+        catalog.template("\"OneWord\"");
+        catalog.template("\"Easy\"");
+        catalog.template("\"TwoWords\"");
+        assertEquals(2, catalog.cached());
+        assertEquals(3, parsed[0]);
+        assertSame(easy, catalog.template("\"Easy\""));
+        assertNotNull(catalog.template("\"OneWord\""));
+        assertEquals(4, parsed[0]);
+    }
+
+    // This covers a puzzle whose header is fine but whose entries are not, and a file without a header
+    @Test
+    public void invalidPuzzlesDropped() throws Exception {
+        Path folder = Files.createTempDirectory("catalog");
+        Files.writeString(folder.resolve("bad.puzzle"), ">> \"Bad\" \"bad entry\"\n(cat, \"feline\", SIDEWAYS, 0, 1)\n");
+        Files.writeString(folder.resolve("headless.puzzle"), "(cat, \"feline\", DOWN, 0, 1)\n");
+        PuzzleCatalog catalog = PuzzleCatalog.scan(folder, 2);
+        assertEquals(Set.of("\"Bad\""), catalog.names());
+        boolean[] failed = {false};
+        catalog.setParseListener((nanos, parseFailed) -> failed[0] = parseFailed);
+        assertNull(catalog.template("\"Bad\""));
+        assertTrue(failed[0]);
+        assertFalse(catalog.contains("\"Bad\""));
+        assertEquals(0, catalog.size());
+    }
+
+    // This covers a parsed puzzle added directly, which is not counted against the capacity
+    @Test
+    public void pinnedPuzzlesKept() throws Exception {
+        PuzzleCatalog catalog = new PuzzleCatalog(1);
+        Board board = (Board)CrosswordParser.parse(Files.readString(Paths.get("puzzles", "oneWord.puzzle")));
+        catalog.add(board.getTemplate());
+        assertSame(board.getTemplate(), catalog.template("\"OneWord\""));
+        assertEquals(0, catalog.cached());
+        assertEquals("\"puzzle with one word for testing purposes\"", catalog.description("\"OneWord\""));
+    }
+}
@@ -0,0 +1,78 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class PuzzleLoaderTest {
+
+    /**
+     * Testing Partitions:
+     *      parse: valid puzzle, inconsistent puzzle, grid too large, text outside the grammar
+     *      loadTexts: all valid, some invalid, duplicate names
+     *      loadFolder: the shipped puzzles
+     */
+
+    // This covers a consistent and an inconsistent puzzle
+    @Test
+    public void parseValidates() throws Exception {
+        PuzzleTemplate template = PuzzleLoader.parse(Files.readString(Paths.get("puzzles", "threeWords.puzzle")));
+        assertEquals("\"ThreeWords\"", template.getName());
+        String feb = Files.readString(Paths.get("puzzles", "feb.puzzle"));
+        assertThrows(IllegalArgumentException.class, () -> PuzzleLoader.parse(feb));
+    }
+
+    // This covers a puzzle whose grid has more than PuzzleTemplate.MAX_CELLS cells, refused before
+    // any of it is allocated
+    @Test
+    public void parseRefusesOversizedGrid() throws Exception {
+        String wide = ">> \"Wide\" \"far right\"\n(cat, \"feline\", ACROSS, 0, 999999988)\n";
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PuzzleLoader.parse(wide));
+        assertEquals("puzzle \"Wide\" is invalid: grid of 1 x 999999992 cells has more than "
+                + PuzzleTemplate.MAX_CELLS + " cells", e.getMessage());
+    }
+
+    // This covers valid, unparsable and duplicate puzzles, reported in the order given
+    @Test
+    public void loadTextsReportsFailures() throws Exception {
+        List<String> texts = new ArrayList<>();
+        texts.add(Files.readString(Paths.get("puzzles", "oneWord.puzzle")));
+        texts.add(">> \"Bad\" \"bad entry\"\n(cat, \"feline\", SIDEWAYS, 0, 1)\n");
+        texts.add(Files.readString(Paths.get("puzzles", "twoWords.puzzle")));
+        texts.add(Files.readString(Paths.get("puzzles", "oneWord.puzzle")));
+        PuzzleLoader.Report report = PuzzleLoader.loadTexts(texts);
+
+        assertEquals(List.of("\"OneWord\"", "\"TwoWords\""),
+                report.getTemplates().stream().map(PuzzleTemplate::getName).collect(Collectors.toList()));
+        List<PuzzleLoader.Result> results = report.getResults();
+        assertEquals(4, results.size());
+        assertNull(results.get(1).getTemplate());
+        assertEquals(">> \"Bad\" \"bad entry\"", results.get(1).getSource());
+        assertEquals("duplicate puzzle \"OneWord\"", results.get(3).getError());
+        assertTrue(report.summary().startsWith("loaded 2 of 4 puzzles"), report.summary());
+
+        int[] failures = {0};
+        report.recordTo((nanos, failed) -> failures[0] += failed ? 1 : 0);
+        assertEquals(2, failures[0]);
+        assertEquals(2, report.toCatalog(1).size());
+    }
+
+    // This covers the shipped puzzles, of which feb.puzzle is inconsistent
+    @Test
+    public void loadFolderSkipsInconsistent() throws Exception {
+        PuzzleLoader.Report report = PuzzleLoader.loadFolder(Paths.get("puzzles"));
+        assertEquals(5, report.getResults().size());
+        assertEquals(4, report.getTemplates().size());
+        assertEquals("puzzle \"Feb\" is invalid: words 4 and 7 cross at (6,9) with different letters 'a' and 'h'",
+                report.getResults().get(0).getError());
+    }
+}
@@ -0,0 +1,57 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class PuzzlePackTest {
+
+    /**
+     * Testing Partitions:
+     *      compile: folder with valid and inconsistent puzzles
+     *      open: pack written by compile, file that is not a pack, truncated pack
+     *      template: puzzle decoded from a pack is the same as the parsed one
+     */
+
+    // This covers compiling the shipped puzzles, which leaves out the inconsistent one
+    @Test
+    public void packMatchesParsedPuzzles() throws Exception {
+        Path pack = Files.createTempFile("puzzles", ".pack");
+        PuzzleLoader.Report report = PuzzlePack.compile(Paths.get("puzzles"), pack);
+        assertEquals(4, report.getTemplates().size());
+
+        PuzzleCatalog catalog = PuzzlePack.open(pack, 2);
+        assertEquals(Set.of("\"Easy\"", "\"OneWord\"", "\"TwoWords\"", "\"ThreeWords\""), catalog.names());
+        assertEquals(0, catalog.cached());
+        for (PuzzleTemplate parsed : report.getTemplates()) {
+            PuzzleTemplate decoded = catalog.template(parsed.getName());
+            assertEquals(parsed.getDescription(), decoded.getDescription());
+            assertEquals(parsed.getCellString(), decoded.getCellString());
+            assertEquals(parsed.getHints(), decoded.getHints());
+            assertEquals(parsed.newBoard().getClientString(), decoded.newBoard().getClientString());
+        }
+    }
+
+    // This covers a file that is not a pack and a pack cut short
+    @Test
+    public void corruptPackRejected() throws Exception {
+        Path notPack = Files.createTempFile("puzzles", ".pack");
+        Files.writeString(notPack, ">> \"Easy\" \"not a pack\"\n");
+        assertThrows(IOException.class, () -> PuzzlePack.open(notPack, 2));
+
+        Path pack = Files.createTempFile("puzzles", ".pack");
+        PuzzlePack.compile(Paths.get("puzzles"), pack);
+        byte[] bytes = Files.readAllBytes(pack);
+        Path truncated = Files.createTempFile("puzzles", ".pack");
+        Files.write(truncated, Arrays.copyOf(bytes, 20));
+        assertThrows(IOException.class, () -> PuzzlePack.open(truncated, 2));
+    }
+}
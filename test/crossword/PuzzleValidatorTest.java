@@ -0,0 +1,129 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class PuzzleValidatorTest {
+
+    /**
+     * Testing Partitions:
+     *      file: consistent, crossing words with different letters, words overlapping in the same
+     *            direction, text outside the layout, grid too large
+     *      grid too large: cell count over PuzzleTemplate.MAX_CELLS, cell count overflowing an int
+     *      problems: none, one, several
+     *      agrees with PuzzleTemplate on whether a puzzle is consistent
+     */
+
+    private static List<String> problems(Reader in, boolean valid) throws Exception {
+        List<PuzzleValidator.Problem> problems = new ArrayList<>();
+        PuzzleValidator.Summary summary = PuzzleValidator.validate(in, problems::add);
+        assertEquals(valid, summary.isValid());
+        assertEquals(problems.size(), summary.getProblems());
+        return problems.stream().map(PuzzleValidator.Problem::toString).collect(Collectors.toList());
+    }
+
+    // This covers the shipped puzzles: consistent ones, and feb.puzzle with several crossing conflicts
+    @Test
+    public void shippedPuzzles() throws Exception {
+        assertEquals(List.of(), problems(Files.newBufferedReader(Paths.get("puzzles", "simple.puzzle")), true));
+        assertEquals(List.of(
+                "line 10, column 1: word 7 crosses word 4 (line 7, column 1) at (6,9) with 'h' where it has 'a'",
+                "line 11, column 1: word 8 crosses word 4 (line 7, column 1) at (6,11) with 's' where it has 'k'",
+                "line 12, column 1: word 9 crosses word 4 (line 7, column 1) at (6,13) with 'o' where it has 'i'"),
+                problems(Files.newBufferedReader(Paths.get("puzzles", "feb.puzzle")), false));
+    }
+
+    // This covers words overlapping in the same direction, one of them overlapping two others,
+    // and text outside the layout after them
+    @Test
+    public void overlapsAndSyntax() throws Exception {
+        String text = ">> \"N\" \"D\"\n"
+                + "(cat, \"h\", ACROSS, 0, 0)\n"
+                + "(tee, \"h\", ACROSS, 0, 4)\n"
+                + "  (attest, \"h\", ACROSS, 0, 1)\n"
+                + "(cow , \"h\", DOWN, 0, 0)\n";
+        assertEquals(List.of(
+                "line 4, column 3: word 3 overlaps word 1 (line 2, column 1) ACROSS at (0,1)",
+                "line 4, column 3: word 3 overlaps word 2 (line 3, column 1) ACROSS at (0,4)",
+                "line 5, column 5: expected ','"),
+                problems(new StringReader(text), false));
+    }
+
+    // This covers generated puzzles, most with conflicts, checked against PuzzleTemplate
+    @Test
+    public void agreesWithPuzzleTemplate() throws Exception {
+        Random random = new Random(25);
+        for (int i = 0; i < 500; i++) {
+            StringBuilder text = new StringBuilder(">> \"G\" \"generated\"\n");
+            List<Word> words = new ArrayList<>();
+            int count = 1 + random.nextInt(5);
+            for (int w = 1; w <= count; w++) {
+                StringBuilder word = new StringBuilder();
+                for (int k = 2 + random.nextInt(3); k > 0; k--) {
+                    word.append((char)('a' + random.nextInt(2)));
+                }
+                Board.Direction dir = random.nextBoolean() ? Board.Direction.ACROSS : Board.Direction.DOWN;
+                int row = random.nextInt(4), col = random.nextInt(4);
+                words.add(new Word(word.toString(), "\"h\"", w, new Position(row, col), dir));
+                text.append('(').append(word).append(", \"h\", ").append(dir).append(", ")
+                    .append(row).append(", ").append(col).append(")\n");
+            }
+            boolean consistent;
+            try {
+                new PuzzleTemplate("\"G\"", "\"generated\"", words);
+                consistent = true;
+            } catch (IllegalArgumentException e) {
+                consistent = false;
+            }
+            assertEquals(consistent, problems(new StringReader(text.toString()), consistent).isEmpty(), text.toString());
+        }
+    }
+
+    // This covers grids too large to lay out, one with more cells than fit in an int, which are
+    // reported once at the first word that makes them too large and refused by PuzzleTemplate
+    @Test
+    public void oversizedGrids() throws Exception {
+        String wide = ">> \"W\" \"D\"\n"
+                + "(cat, \"h\", ACROSS, 0, 0)\n"
+                + "(cat, \"h\", ACROSS, 0, 999999990)\n"
+                + "(cat, \"h\", ACROSS, 0, 999999995)\n";
+        assertEquals(List.of("line 3, column 1: word 2 makes the grid 1 x 999999994 cells, more than "
+                + PuzzleTemplate.MAX_CELLS), problems(new StringReader(wide), false));
+        String huge = ">> \"H\" \"D\"\n"
+                + "(cat, \"h\", ACROSS, 999999, 0)\n"
+                + "(cat, \"h\", DOWN, 0, 999999)\n";
+        assertEquals(List.of("line 3, column 1: word 2 makes the grid 1000000 x 1000000 cells, more than "
+                + PuzzleTemplate.MAX_CELLS), problems(new StringReader(huge), false));
+
+        List<Word> words = List.of(
+                new Word("cat", "\"h\"", 1, new Position(999999, 0), Board.Direction.ACROSS),
+                new Word("cat", "\"h\"", 2, new Position(0, 999999), Board.Direction.DOWN));
+        assertThrows(IllegalArgumentException.class, () -> new PuzzleTemplate("\"H\"", "\"D\"", words));
+        assertThrows(IllegalArgumentException.class, () -> new PuzzleTemplate("\"W\"", "\"D\"",
+                List.of(new Word("cat", "\"h\"", 1, new Position(0, 999999990), Board.Direction.ACROSS))));
+    }
+
+    // This covers a puzzle far larger than the parser's buffer
+    @Test
+    public void largePuzzle() throws Exception {
+        String text = BoardOperationsBenchmark.latticeText(301);
+        List<PuzzleValidator.Problem> problems = new ArrayList<>();
+        PuzzleValidator.Summary summary = PuzzleValidator.validate(new StringReader(text), problems::add);
+        assertTrue(summary.isValid());
+        assertEquals(BoardBenchmark.latticeWords(301).size(), summary.getEntries());
+        assertFalse(summary.toString().contains("stopped"));
+    }
+}
@@ -0,0 +1,89 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+public class WireCodecTest {
+
+    /**
+     * Testing Partitions:
+     *      encode/decode
+     *          compact opcode (TRY, CHALLENGE, SHOWSCORE request, SHOWSCORE response), text frame,
+     *          line that looks compact but does not fit (non-numeric word id)
+     *      readFrame: several frames in a row, end of stream
+     *      readLine: "\n" and "\r\n" terminators, frames following the line
+     *      requestsFrames: START with and without BINARY, other requests
+     *      malformed frame: unknown opcode, truncated
+     */
+
+    private static ByteBuffer body(byte[] frame) {
+        return ByteBuffer.wrap(frame, 4, frame.length - 4).slice();
+    }
+
+    // This covers the lines with compact opcodes round-tripping to the same tokens
+    @Test
+    public void compactRoundTrip() {
+        for (String line : new String[] {"TRY alice 3 cat", "CHALLENGE bob 12 tax", "SHOWSCORE alice", "SHOWSCORE alice -1 bob 2"}) {
+            byte[] frame = WireCodec.encode(line);
+            assertTrue(frame[4] != WireCodec.TEXT, line);
+            assertArrayEquals(line.split(" "), WireCodec.decodeTokens(body(frame)));
+            assertEquals(line, WireCodec.decodeLine(body(frame)));
+        }
+    }
+
+    // This covers text frames, including a TRY whose word id is not a number
+    @Test
+    public void textRoundTrip() {
+        for (String line : new String[] {"PLAY m1 bob ok-->\"Easy\" | x", "TRY alice three cat", "NEW m1 ThreeWords alice"}) {
+            byte[] frame = WireCodec.encode(line);
+            assertEquals(WireCodec.TEXT, frame[4]);
+            assertEquals(line, WireCodec.decodeLine(body(frame)));
+            assertArrayEquals(line.split(" "), WireCodec.decodeTokens(body(frame)));
+        }
+    }
+
+    // This covers a line followed by frames on the same stream, and the end of the stream
+    @Test
+    public void streamAfterHandshake() throws IOException {
+        byte[] line = "START alice BINARY\r\n".getBytes();
+        byte[] first = WireCodec.encode("TRY alice 1 cat");
+        byte[] second = WireCodec.encode("SHOWSCORE alice");
+        ByteBuffer all = ByteBuffer.allocate(line.length + first.length + second.length).put(line).put(first).put(second);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(all.array()));
+        String start = WireCodec.readLine(in);
+        assertEquals("START alice BINARY", start);
+        assertTrue(WireCodec.requestsFrames(start));
+        assertEquals("TRY alice 1 cat", WireCodec.decodeLine(WireCodec.readFrame(in)));
+        assertEquals("SHOWSCORE alice", WireCodec.decodeLine(WireCodec.readFrame(in)));
+        assertNull(WireCodec.readFrame(in));
+    }
+
+    // This covers requests that do not switch to frames
+    @Test
+    public void requestsFramesOnlyForStart() {
+        assertFalse(WireCodec.requestsFrames("START alice"));
+        assertFalse(WireCodec.requestsFrames("START alice DELTA"));
+        assertTrue(WireCodec.requestsFrames("START alice DELTA BINARY"));
+        assertFalse(WireCodec.requestsFrames("NEW BINARY alice BINARY"));
+    }
+
+    // This covers frames that cannot be decoded
+    @Test
+    public void malformedFrames() {
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.decodeTokens(ByteBuffer.wrap(new byte[] {9, 0})));
+        byte[] frame = WireCodec.encode("TRY alice 1 cat");
+        ByteBuffer truncated = ByteBuffer.wrap(frame, 4, frame.length - 6).slice();
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.decodeTokens(truncated));
+    }
+}
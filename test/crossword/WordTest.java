@@ -21,6 +21,8 @@ public class WordTest {
      *           true and false
      *      hashCode
      *      equals
+     *           same text in distinct String objects, different slots
+     *      getSlot, withSlot
      */
     static final Word WACROSS = new Word("hi", "a greeting", 1, new Position(1, 2), Board.Direction.ACROSS);
     static final Word WACROSS2 = new Word("hi", "a greeting", 1, new Position(1, 2), Board.Direction.ACROSS);
@@ -105,4 +107,24 @@ public class WordTest {
         assert(WACROSS.equals(WACROSS2));
         assertEquals(WACROSS.hashCode(),WACROSS2.hashCode());
     }
+    
+    // this test covers equality of words whose text is equal but not the same String object
+    @Test
+    public void equalityDistinctStringsTest() {
+        Word other = new Word(new String("hi"), "a greeting", 1, new Position(1, 2), Board.Direction.ACROSS);
+        assert(WACROSS.equals(other));
+        assertEquals(WACROSS.hashCode(), other.hashCode());
+    }
+    
+    // this test covers getSlot, withSlot and equality of slotted words
+    @Test
+    public void slotTest() {
+        assertEquals(-1, WACROSS.getSlot());
+        Word slotted = WACROSS.withSlot(3);
+        assertEquals(3, slotted.getSlot());
+        assert(slotted.equals(WACROSS2.withSlot(3)));
+        assertEquals(slotted.hashCode(), WACROSS2.withSlot(3).hashCode());
+        assert(!slotted.equals(WACROSS));
+        assert(!slotted.equals(WACROSS.withSlot(4)));
+    }
 }